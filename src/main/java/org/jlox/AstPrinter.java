@@ -1,7 +1,7 @@
 package org.jlox;
 
 public class AstPrinter implements Expr.Visitor<String> {
-    String print(Expr expr)  {
+    public String print(Expr expr)  {
         return expr.accept(this);
     }
 
@@ -19,32 +19,39 @@ public class AstPrinter implements Expr.Visitor<String> {
 
     @Override
     public String visitCallExpr(final Expr.Call expr) {
-        return null;
+        Expr[] exprs = new Expr[expr.getArgs().size() + 1];
+        exprs[0] = expr.getCallee();
+        for (int i = 1; i < exprs.length; i++) {
+            exprs[i] = expr.getArgs().get(i - 1);
+        }
+        return parenthesise("call", exprs);
     }
 
     @Override
     public String visitGetExpr(Expr.Get expr) {
-        return null;
+        return parenthesise("." + expr.getName().lexeme(), expr.getObject());
     }
 
     @Override
     public String visitLogicalExpr(final Expr.Logical expr) {
-        return null;
+        return parenthesise(expr.getOperator().lexeme(),
+                expr.getLeft(), expr.getRight());
     }
 
     @Override
     public String visitSelfExpr(Expr.Self expr) {
-        return null;
+        return "self";
     }
 
     @Override
     public String visitSetExpr(Expr.Set expr) {
-        return null;
+        return parenthesise("=." + expr.getName().lexeme(),
+                expr.getObject(), expr.getValue());
     }
 
     @Override
     public String visitSuperExpr(Expr.Super expr) {
-        return null;
+        return parenthesise("super." + expr.getMethod().lexeme());
     }
 
     @Override
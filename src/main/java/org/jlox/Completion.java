@@ -0,0 +1,9 @@
+package org.jlox;
+
+/* How a statement finished, which the interpreter passes back up through
+ * the statements enclosing it instead of unwinding them with an
+ * exception. A RETURN leaves its value with the interpreter. */
+enum Completion {
+    NORMAL,
+    RETURN
+}
@@ -0,0 +1,7 @@
+package org.jlox;
+
+import java.util.List;
+
+public interface Engine {
+    void interpret(List<Stmt> statements);
+}
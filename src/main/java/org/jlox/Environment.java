@@ -3,26 +3,52 @@ package org.jlox;
 import java.util.Map;
 import java.util.HashMap;
 
-import static org.jlox.ErrorMessage.UNDEFINED_VARIABLE;
-
 public class Environment {
+    /* depth and slot of a name the resolver left in the global scope */
+    public static final int GLOBAL = -1;
+
     private final Environment enclosing;
-    private final Map<String, Object> values = new HashMap<>();
+    private final Object[] slots;
+    private final Map<Symbol, GlobalCell> cells;
 
+    /* the global environment is looked up by symbol, since the REPL
+     * keeps declaring into it after resolution, and keeps each global in
+     * a cell that sites can link to */
     public Environment() {
-        enclosing = null;
+        this.enclosing = null;
+        this.slots = new Object[0];
+        this.cells = new HashMap<>();
     }
 
-    public Environment(final Environment enclosing) {
+    public Environment(final Environment enclosing, final int size) {
         this.enclosing = enclosing;
+        this.slots = new Object[size];
+        this.cells = null;
     }
 
     public Environment getEnclosing() {
         return enclosing;
     }
 
-    public void define(String name, Object value) {
-        values.put(name, value);
+    /* the cell holding a global, made undefined if nothing declared the
+     * name yet */
+    public GlobalCell cell(Symbol name) {
+        return cells.computeIfAbsent(name, key -> new GlobalCell());
+    }
+
+    public void define(Symbol name, Object value) {
+        cell(name).define(value);
+    }
+
+    public void define(int slot, Object value) {
+        slots[slot] = value;
+    }
+
+    /* drops the values of slots nothing can read any more */
+    public void release(int[] released) {
+        for (int slot : released) {
+            slots[slot] = null;
+        }
     }
 
     public Environment ancestor(int distance) {
@@ -33,36 +59,19 @@ public class Environment {
         return environment;
     }
 
-    public Object getAt(int distance, String name) {
-        return ancestor(distance).values.get(name);
+    public Object getAt(int distance, int slot) {
+        return ancestor(distance).slots[slot];
     }
 
     public Object get(Token name) {
-        if (values.containsKey(name.lexeme())) {
-            return values.get(name.lexeme());
-        }
-        if (enclosing != null) return enclosing.get(name);
-        throw environmentError(name, UNDEFINED_VARIABLE);
+        return cell(name.symbol()).get(name);
     }
 
-    public void assignAt(int distance, Token name, Object value) {
-        ancestor(distance).values.put(name.lexeme(), value);
+    public void assignAt(int distance, int slot, Object value) {
+        ancestor(distance).slots[slot] = value;
     }
 
     public void assign(Token name, Object value) {
-        if (values.containsKey(name.lexeme())) {
-            values.put(name.lexeme(), value);
-            return;
-        }
-        if (enclosing != null) {
-            enclosing.assign(name, value);
-            return;
-        }
-        throw environmentError(name, UNDEFINED_VARIABLE);
-    }
-
-    private RuntimeError environmentError(Token name, ErrorMessage message) {
-        throw new RuntimeError(name,
-                String.format(message.getMsg(), name.lexeme()));
+        cell(name.symbol()).assign(name, value);
     }
 }
@@ -11,7 +11,6 @@ public enum ErrorMessage {
     NO_PARAM_NAME(String.format(EXPECT.getMsg(), "parameter name")),
     NO_FUNC_NAME(String.format(EXPECT.getMsg(), "%s name")),
     NO_SUPERCLASS_NAME(String.format(EXPECT.getMsg(), "superclass name")),
-    NO_RHS(String.format(EXPECT_AFTER.getMsg(), "right-hand expression", "%s")),
     NO_VAR_END(String.format(EXPECT_AFTER.getMsg(), "';'", "a variable declaration")),
     NO_IF_START(String.format(EXPECT_AFTER.getMsg(), "'('", "'if'")),
     NO_IF_END(String.format(EXPECT_AFTER.getMsg(), "')'", "if condition")),
@@ -38,8 +37,6 @@ public enum ErrorMessage {
 
     UNDEFINED_VARIABLE("Undefined variable %s."),
     EXISTING_VARIABLE("Already a variable with this name in scope."),
-    EXPR_ERROR("Error parsing expression"),
-    COND_ERROR("Error parsing conditional expression"),
     DIVIDE_BY_ZERO("Can't divide by zero."),
     INVALID_ASSIGN("Invalid assignment target."),
     INIT_ACCESS("Can't read local variable in its own initialization."),
@@ -53,11 +50,19 @@ public enum ErrorMessage {
     THIS_NO_CLASS("Can't use 'this' outside of a class."),
     RETURN_FROM_INIT("Can't return a value from an initializer."),
     NOT_INSTANCE("Only instances have properties."),
+    NOT_INSTANCE_FIELDS("Only instances have fields."),
     UNDEFINED_PROPERTY("Undefined property '%s'."),
     SELF_INHERIT("A class can't inherit from itself."),
     SUPER_MUST_BE_CLASS("Superclass must be a class."),
     SUPER_OUTSIDE_CLASS("Can't use 'super' outside of a class."),
-    SUPER_NO_SUPERCLASS("Can't use 'super' in a class with no superclass.");
+    SUPER_NO_SUPERCLASS("Can't use 'super' in a class with no superclass."),
+    LOCAL_LIMIT("Too many local variables in function."),
+    UPVALUE_LIMIT("Too many closure variables in function."),
+    CONSTANT_LIMIT("Too many constants in one chunk."),
+    JUMP_LIMIT("Too much code to jump over."),
+    LOOP_LIMIT("Loop body too large."),
+    CODE_LIMIT("Too much code to compile in one function."),
+    STACK_OVERFLOW("Stack overflow.");
 
     private final String msg;
 
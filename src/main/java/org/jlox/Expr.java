@@ -23,6 +23,9 @@ public abstract class Expr {
     public static class Assign extends Expr {
         private final Token name;
         private final Expr value;
+        private int depth = Environment.GLOBAL;
+        private int slot;
+        private GlobalCell cell;
 
         Assign(Token name, Expr value) {
             this.name = name;
@@ -37,6 +40,30 @@ public abstract class Expr {
             return value;
         }
 
+        public int getDepth() {
+            return depth;
+        }
+
+        public void setDepth(int depth) {
+            this.depth = depth;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
+
+        public void setSlot(int slot) {
+            this.slot = slot;
+        }
+
+        public GlobalCell getCell() {
+            return cell;
+        }
+
+        public void setCell(GlobalCell cell) {
+            this.cell = cell;
+        }
+
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitAssignExpr(this);
@@ -47,6 +74,7 @@ public abstract class Expr {
         private final Expr left;
         private final Token operator;
         private final Expr right;
+        private boolean numeric;
 
         Binary(Expr left, Token operator, Expr right) {
             this.left = left;
@@ -66,6 +94,14 @@ public abstract class Expr {
             return right;
         }
 
+        public boolean getNumeric() {
+            return numeric;
+        }
+
+        public void setNumeric(boolean numeric) {
+            this.numeric = numeric;
+        }
+
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitBinaryExpr(this);
@@ -76,6 +112,7 @@ public abstract class Expr {
         private final Expr callee;
         private final Token paren;
         private final List<Expr> args;
+        private InlineCache cache = new InlineCache();
 
         Call(Expr callee, Token paren, List<Expr> args) {
             this.callee = callee;
@@ -95,6 +132,14 @@ public abstract class Expr {
             return args;
         }
 
+        public InlineCache getCache() {
+            return cache;
+        }
+
+        public void setCache(InlineCache cache) {
+            this.cache = cache;
+        }
+
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitCallExpr(this);
@@ -121,6 +166,7 @@ public abstract class Expr {
     public static class Get extends Expr {
         private final Expr object;
         private final Token name;
+        private InlineCache cache = new InlineCache();
 
         Get(Expr object, Token name) {
             this.object = object;
@@ -135,6 +181,14 @@ public abstract class Expr {
             return name;
         }
 
+        public InlineCache getCache() {
+            return cache;
+        }
+
+        public void setCache(InlineCache cache) {
+            this.cache = cache;
+        }
+
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitGetExpr(this);
@@ -189,6 +243,8 @@ public abstract class Expr {
 
     public static class Self extends Expr {
         private final Token keyword;
+        private int depth = Environment.GLOBAL;
+        private int slot;
 
         Self(Token keyword) {
             this.keyword = keyword;
@@ -198,6 +254,22 @@ public abstract class Expr {
             return keyword;
         }
 
+        public int getDepth() {
+            return depth;
+        }
+
+        public void setDepth(int depth) {
+            this.depth = depth;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
+
+        public void setSlot(int slot) {
+            this.slot = slot;
+        }
+
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitSelfExpr(this);
@@ -208,6 +280,7 @@ public abstract class Expr {
         private final Expr object;
         private final Token name;
         private final Expr value;
+        private InlineCache cache = new InlineCache();
 
         Set(Expr object, Token name, Expr value) {
             this.object = object;
@@ -227,6 +300,14 @@ public abstract class Expr {
             return value;
         }
 
+        public InlineCache getCache() {
+            return cache;
+        }
+
+        public void setCache(InlineCache cache) {
+            this.cache = cache;
+        }
+
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitSetExpr(this);
@@ -236,6 +317,8 @@ public abstract class Expr {
     public static class Super extends Expr {
         private final Token keyword;
         private final Token method;
+        private int depth = Environment.GLOBAL;
+        private int slot;
 
         Super(Token keyword, Token method) {
             this.keyword = keyword;
@@ -250,6 +333,22 @@ public abstract class Expr {
             return method;
         }
 
+        public int getDepth() {
+            return depth;
+        }
+
+        public void setDepth(int depth) {
+            this.depth = depth;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
+
+        public void setSlot(int slot) {
+            this.slot = slot;
+        }
+
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitSuperExpr(this);
@@ -281,6 +380,9 @@ public abstract class Expr {
 
     public static class Variable extends Expr {
         private final Token name;
+        private int depth = Environment.GLOBAL;
+        private int slot;
+        private GlobalCell cell;
 
         Variable(Token name) {
             this.name = name;
@@ -290,6 +392,30 @@ public abstract class Expr {
             return name;
         }
 
+        public int getDepth() {
+            return depth;
+        }
+
+        public void setDepth(int depth) {
+            this.depth = depth;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
+
+        public void setSlot(int slot) {
+            this.slot = slot;
+        }
+
+        public GlobalCell getCell() {
+            return cell;
+        }
+
+        public void setCell(GlobalCell cell) {
+            this.cell = cell;
+        }
+
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitVariableExpr(this);
@@ -0,0 +1,35 @@
+package org.jlox;
+
+import static org.jlox.ErrorMessage.UNDEFINED_VARIABLE;
+
+/* The binding of one global name. The global environment hands out the
+ * same cell for a name for as long as it lives, so a site that reads or
+ * assigns a global can hold on to the cell and skip the table lookup.
+ * A cell exists as soon as any site links to it, which may be before the
+ * global is declared, so it remembers whether it has been and a site
+ * still reports an undefined variable only when it runs. */
+public final class GlobalCell {
+    private static final Object UNDEFINED = new Object();
+
+    private Object value = UNDEFINED;
+
+    public Object get(Token name) {
+        Object result = value;
+        if (result == UNDEFINED) throw undefined(name);
+        return result;
+    }
+
+    public void assign(Token name, Object value) {
+        if (this.value == UNDEFINED) throw undefined(name);
+        this.value = value;
+    }
+
+    public void define(Object value) {
+        this.value = value;
+    }
+
+    private RuntimeError undefined(Token name) {
+        return new RuntimeError(name,
+                String.format(UNDEFINED_VARIABLE.getMsg(), name.lexeme()));
+    }
+}
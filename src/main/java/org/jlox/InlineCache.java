@@ -0,0 +1,38 @@
+package org.jlox;
+
+/* Remembers, at one property or call site, what a lookup found for each
+ * receiver seen there: keyed by Shape for property sites, by LoxClass for
+ * call sites. A site that sees more receivers than it can hold turns
+ * megamorphic and goes back to looking everything up. */
+public final class InlineCache {
+    private static final int POLYMORPHIC_LIMIT = 4;
+
+    private Object[] keys = new Object[POLYMORPHIC_LIMIT];
+    private Object[] targets = new Object[POLYMORPHIC_LIMIT];
+    private int size;
+
+    /* the entry recorded for a receiver, or -1 on a miss */
+    int find(Object key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) return i;
+        }
+        return -1;
+    }
+
+    Object target(int entry) {
+        return targets[entry];
+    }
+
+    void record(Object key, Object target) {
+        if (keys == null) return;
+        if (size == POLYMORPHIC_LIMIT) {
+            keys = null;
+            targets = null;
+            size = 0;
+            return;
+        }
+        keys[size] = key;
+        targets[size] = target;
+        size++;
+    }
+}
@@ -1,6 +1,5 @@
 package org.jlox;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,19 +9,22 @@ import static org.jlox.ErrorMessage.INVALID_CALL;
 import static org.jlox.ErrorMessage.INVALID_CALL_PARAMS;
 import static org.jlox.ErrorMessage.MATCH_OPERANDS;
 import static org.jlox.ErrorMessage.NOT_INSTANCE;
+import static org.jlox.ErrorMessage.NOT_INSTANCE_FIELDS;
 import static org.jlox.ErrorMessage.OPERAND_NUMBER;
 import static org.jlox.ErrorMessage.OPERAND_NUMBERS;
 import static org.jlox.ErrorMessage.SUPER_MUST_BE_CLASS;
 import static org.jlox.LoxConstants.*;
 
-public class Interpreter implements Expr.Visitor<Object>,
-                                    Stmt.Visitor<Void> {
+public class Interpreter implements Engine,
+                                    Expr.Visitor<Object>,
+                                    Stmt.Visitor<Completion> {
     private final Environment globals = new Environment();
-    private final Map<Expr, Integer> locals = new HashMap<>();
     private Environment environment = globals;
+    /* the value of the return statement that last completed */
+    private Object returnValue;
 
     public Interpreter() {
-        globals.define("clock",
+        globals.define(Symbol.intern("clock"),
             new LoxCallable() {
                 @Override
                 public int arity() {
@@ -31,6 +33,11 @@ public class Interpreter implements Expr.Visitor<Object>,
 
                 @Override
                 public Object call(final Interpreter interpreter, final List<Object> args) {
+                    return call0(interpreter);
+                }
+
+                @Override
+                public Object call0(final Interpreter interpreter) {
                     return (double) System.currentTimeMillis() / 1000.0;
                 }
 
@@ -42,6 +49,11 @@ public class Interpreter implements Expr.Visitor<Object>,
         );
     }
 
+    public Environment getGlobals() {
+        return globals;
+    }
+
+    @Override
     public void interpret(List<Stmt> statements) {
         try {
             for (Stmt statement : statements) {
@@ -55,29 +67,45 @@ public class Interpreter implements Expr.Visitor<Object>,
     @Override
     public Object visitAssignExpr(final Expr.Assign expr) {
         Object value = evaluate(expr.getValue());
-        Integer distance = locals.get(expr);
-        if (distance != null) {
-            environment.assignAt(distance, expr.getName(), value);
+        if (expr.getDepth() == Environment.GLOBAL) {
+            GlobalCell cell = expr.getCell();
+            if (cell == null) {
+                cell = globals.cell(expr.getName().symbol());
+                expr.setCell(cell);
+            }
+            cell.assign(expr.getName(), value);
         } else {
-            globals.assign(expr.getName(), value);
+            environment.assignAt(expr.getDepth(), expr.getSlot(), value);
         }
         return value;
     }
 
     @Override
     public Object visitBinaryExpr(final Expr.Binary expr) {
+        if (expr.getNumeric()) return evaluateDouble(expr);
+        switch (expr.getOperator().type()) {
+            case GREATER -> {
+                return leftOperand(expr) > rightOperand(expr);
+            }
+            case GREATER_EQUAL -> {
+                return leftOperand(expr) >= rightOperand(expr);
+            }
+            case LESS -> {
+                return leftOperand(expr) < rightOperand(expr);
+            }
+            case LESS_EQUAL -> {
+                return leftOperand(expr) <= rightOperand(expr);
+            }
+        }
         Object left = evaluate(expr.getLeft());
         Object right = evaluate(expr.getRight());
         switch (expr.getOperator().type()) {
             case PLUS -> {
                 if (left instanceof Double && right instanceof Double) {
                     return (double) left + (double) right;
-                } else if (left instanceof String && right instanceof String) {
-                    return left + (String) right;
-                } else if (left instanceof String && right instanceof Double) {
-                    return (String) left + right;
-                } else if (left instanceof Double && right instanceof String) {
-                    return left + (String) right;
+                } else if ((left instanceof CharSequence || left instanceof Double) &&
+                           (right instanceof CharSequence || right instanceof Double)) {
+                    return Rope.concat(left, right);
                 }
                 throw new RuntimeError(expr.getOperator(),
                         MATCH_OPERANDS.getMsg());
@@ -88,58 +116,166 @@ public class Interpreter implements Expr.Visitor<Object>,
             case EQUAL_EQUAL -> {
                 return isEqual(left, right);
             }
-            case MINUS -> {
-                checkNumberOperands(expr.getOperator(), left, right);
-                return (double) left - (double) right;
-            }
-            case SLASH -> {
-                checkNumberOperands(expr.getOperator(), left, right);
-                if ((double) left == 0 || (double) right == 0) {
-                    throw new RuntimeError(expr.getOperator(),
-                            DIVIDE_BY_ZERO.getMsg());
+        }
+        return null;
+    }
+
+    /* Evaluates an expression the resolver found numeric without boxing
+     * the intermediate results, so a whole arithmetic subtree allocates
+     * one Double, where its value escapes to the rest of the program. */
+    private double evaluateDouble(final Expr expr) {
+        if (expr instanceof Expr.Binary binary) {
+            switch (binary.getOperator().type()) {
+                case PLUS -> {
+                    return evaluateDouble(binary.getLeft())
+                            + evaluateDouble(binary.getRight());
+                }
+                case MINUS -> {
+                    return leftOperand(binary) - rightOperand(binary);
+                }
+                case STAR -> {
+                    return leftOperand(binary) * rightOperand(binary);
+                }
+                case SLASH -> {
+                    double left = leftOperand(binary);
+                    double right = rightOperand(binary);
+                    if (left == 0 || right == 0) {
+                        throw new RuntimeError(binary.getOperator(),
+                                DIVIDE_BY_ZERO.getMsg());
+                    }
+                    return left / right;
                 }
-                return (double) left / (double) right;
             }
-            case STAR -> {
-                checkNumberOperands(expr.getOperator(), left, right);
-                return (double) left * (double) right;
+        } else if (expr instanceof Expr.Unary unary) {
+            if (Resolver.isNumeric(unary.getRight())) {
+                return -evaluateDouble(unary.getRight());
             }
-            case GREATER -> {
-                checkNumberOperands(expr.getOperator(), left, right);
-                return (double) left > (double) right;
+            Object right = evaluate(unary.getRight());
+            checkNumberOperand(unary.getOperator(), right);
+            return -(double) right;
+        } else if (expr instanceof Expr.Grouping grouping) {
+            return evaluateDouble(grouping.getExpression());
+        }
+        return (double) ((Expr.Literal) expr).getValue();
+    }
+
+    /* The operands of operators that only take numbers. Any operand is
+     * unboxed as soon as it is evaluated, but a wrong type on the left is
+     * only reported once the right has been evaluated too. */
+    private double leftOperand(final Expr.Binary expr) {
+        if (Resolver.isNumeric(expr.getLeft())) return evaluateDouble(expr.getLeft());
+        Object left = evaluate(expr.getLeft());
+        if (left instanceof Double number) return number;
+        evaluate(expr.getRight());
+        throw new RuntimeError(expr.getOperator(), OPERAND_NUMBERS.getMsg());
+    }
+
+    private double rightOperand(final Expr.Binary expr) {
+        if (Resolver.isNumeric(expr.getRight())) return evaluateDouble(expr.getRight());
+        Object right = evaluate(expr.getRight());
+        if (right instanceof Double number) return number;
+        throw new RuntimeError(expr.getOperator(), OPERAND_NUMBERS.getMsg());
+    }
+
+    @Override
+    public Object visitCallExpr(final Expr.Call expr) {
+        if (expr.getCallee() instanceof Expr.Get get) return invoke(expr, get, false);
+        Object callee = evaluate(expr.getCallee());
+        /* the common arities are passed without gathering an array */
+        List<Expr> args = expr.getArgs();
+        switch (args.size()) {
+            case 0 -> {
+                if (LoxCallable.isDirect(callee, 0)) {
+                    return ((LoxCallable) callee).call0(this);
+                }
+                return call(expr, callee, new Object[0], false);
             }
-            case GREATER_EQUAL -> {
-                checkNumberOperands(expr.getOperator(), left, right);
-                return (double) left >= (double) right;
+            case 1 -> {
+                Object a = evaluate(args.get(0));
+                if (LoxCallable.isDirect(callee, 1)) {
+                    return ((LoxCallable) callee).call1(this, a);
+                }
+                return call(expr, callee, new Object[] {a}, false);
             }
-            case LESS -> {
-                checkNumberOperands(expr.getOperator(), left, right);
-                return (double) left < (double) right;
+            case 2 -> {
+                Object a = evaluate(args.get(0));
+                Object b = evaluate(args.get(1));
+                if (LoxCallable.isDirect(callee, 2)) {
+                    return ((LoxCallable) callee).call2(this, a, b);
+                }
+                return call(expr, callee, new Object[] {a, b}, false);
             }
-            case LESS_EQUAL -> {
-                checkNumberOperands(expr.getOperator(), left, right);
-                return (double) left <= (double) right;
+            case 3 -> {
+                Object a = evaluate(args.get(0));
+                Object b = evaluate(args.get(1));
+                Object c = evaluate(args.get(2));
+                if (LoxCallable.isDirect(callee, 3)) {
+                    return ((LoxCallable) callee).call3(this, a, b, c);
+                }
+                return call(expr, callee, new Object[] {a, b, c}, false);
+            }
+            default -> {
+                return call(expr, callee, evaluateArgs(expr), false);
             }
         }
-        return null;
     }
 
-    @Override
-    public Object visitCallExpr(final Expr.Call expr) {
+    /* a call in tail position, which for a Lox function is not made here
+     * but handed back as a LoxFunction.TailCall */
+    private Object tailCall(final Expr.Call expr) {
+        if (expr.getCallee() instanceof Expr.Get get) return invoke(expr, get, true);
         Object callee = evaluate(expr.getCallee());
-        List<Object> args = new ArrayList<>();
-        for (Expr arg : expr.getArgs()) {
-            args.add(evaluate(arg));
+        return call(expr, callee, evaluateArgs(expr), true);
+    }
+
+    /* obj.method(args) calls the method straight on the instance, without
+     * the bound method a separate property read would allocate */
+    private Object invoke(final Expr.Call expr, final Expr.Get get,
+                          final boolean tail) {
+        Object object = evaluate(get.getObject());
+        if (!(object instanceof LoxInstance instance)) {
+            throw new RuntimeError(get.getName(), NOT_INSTANCE.getMsg());
+        }
+        LoxFunction method = instance.getMethod(get.getName(), get.getCache());
+        if (method == null) {
+            Object callee = instance.get(get.getName(), get.getCache());
+            return call(expr, callee, evaluateArgs(expr), tail);
+        }
+        Object[] args = evaluateArgs(expr);
+        if (args.length != method.arity()) {
+            throw new RuntimeError(expr.getParen(),
+                    String.format(INVALID_CALL_PARAMS.getMsg(),
+                            method.arity(), args.length));
         }
+        if (tail) return method.tailInvoke(instance, args);
+        return method.invoke(this, instance, args);
+    }
+
+    private Object[] evaluateArgs(final Expr.Call expr) {
+        Object[] args = new Object[expr.getArgs().size()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = evaluate(expr.getArgs().get(i));
+        }
+        return args;
+    }
+
+    private Object call(final Expr.Call expr, final Object callee,
+                        final Object[] args, final boolean tail) {
         if (!(callee instanceof final LoxCallable function)) {
             throw new RuntimeError(expr.getParen(),
                     INVALID_CALL.getMsg());
         }
-        if (args.size() != function.arity()) {
+        int arity = function instanceof LoxClass clazz
+                ? clazz.arity(expr.getCache()) : function.arity();
+        if (args.length != arity) {
             throw new RuntimeError(expr.getParen(),
                     String.format(INVALID_CALL_PARAMS.getMsg(),
-                            function.arity(), args.size()));
+                            arity, args.length));
+        }
+        if (function instanceof LoxClass clazz) {
+            return clazz.call(this, args, expr.getCache());
         }
+        if (tail && function instanceof LoxFunction lox) return lox.tailCall(args);
         return function.call(this, args);
     }
 
@@ -147,7 +283,7 @@ public class Interpreter implements Expr.Visitor<Object>,
     public Object visitGetExpr(Expr.Get expr) {
         Object object = evaluate(expr.getObject());
         if (object instanceof LoxInstance) {
-            return ((LoxInstance) object).get(expr.getName());
+            return ((LoxInstance) object).get(expr.getName(), expr.getCache());
         }
         throw new RuntimeError(expr.getName(), NOT_INSTANCE.getMsg());
     }
@@ -165,7 +301,8 @@ public class Interpreter implements Expr.Visitor<Object>,
 
     @Override
     public Object visitSelfExpr(Expr.Self expr) {
-        return lookUpVariable(expr.getKeyword(), expr);
+        return lookUpVariable(expr.getKeyword(), expr.getDepth(),
+                expr.getSlot());
     }
 
     @Override
@@ -173,21 +310,19 @@ public class Interpreter implements Expr.Visitor<Object>,
         Object object = evaluate(expr.getObject());
         if(!(object instanceof LoxInstance)) {
             throw new RuntimeError(expr.getName(),
-                    "Only instances have fields.");
+                    NOT_INSTANCE_FIELDS.getMsg());
         }
         Object value = evaluate(expr.getValue());
-        ((LoxInstance) object).set(expr.getName(), value);
+        ((LoxInstance) object).set(expr.getName(), value, expr.getCache());
         return null;
     }
 
     @Override
     public Object visitSuperExpr(Expr.Super expr) {
-        int distance = locals.get(expr);
-        LoxClass superclass = (LoxClass) environment.getAt(
-                distance, SUPER.getName());
-        LoxInstance object = (LoxInstance) environment.getAt(
-                distance - 1, THIS.getName());
-        LoxFunction method = superclass.findMethod(expr.getMethod().lexeme());
+        int distance = expr.getDepth();
+        LoxClass superclass = (LoxClass) environment.getAt(distance, 0);
+        LoxInstance object = (LoxInstance) environment.getAt(distance - 1, 0);
+        LoxFunction method = superclass.findMethod(expr.getMethod().symbol());
         return method.bind(object);
     }
 
@@ -201,43 +336,52 @@ public class Interpreter implements Expr.Visitor<Object>,
         return expr.getValue();
     }
 
+    /* a global site links to its cell the first time it runs */
     @Override
     public Object visitVariableExpr(final Expr.Variable expr) {
-        return lookUpVariable(expr.getName(), expr);
+        if (expr.getDepth() == Environment.GLOBAL) {
+            GlobalCell cell = expr.getCell();
+            if (cell == null) {
+                cell = globals.cell(expr.getName().symbol());
+                expr.setCell(cell);
+            }
+            return cell.get(expr.getName());
+        }
+        return environment.getAt(expr.getDepth(), expr.getSlot());
     }
 
-    private Object lookUpVariable(Token name, Expr expr) {
-        Integer distance = locals.get(expr);
-        if (distance != null) {
-            return environment.getAt(distance, name.lexeme());
-        } else {
+    private Object lookUpVariable(Token name, int depth, int slot) {
+        if (depth == Environment.GLOBAL) {
             return globals.get(name);
+        } else {
+            return environment.getAt(depth, slot);
         }
     }
 
     @Override
     public Object visitUnaryExpr(final Expr.Unary expr) {
-        Object right = evaluate(expr.getRight());
         switch (expr.getOperator().type()) {
             case MINUS -> {
-                checkNumberOperand(expr.getOperator(), right);
-                return -(double) right;
+                return evaluateDouble(expr);
             }
             case BANG -> {
-                return !isTruthy(right);
+                return !isTruthy(evaluate(expr.getRight()));
             }
         }
         return null;
     }
 
     @Override
-    public Void visitBlockStmt(final Stmt.Block stmt) {
-        executeBlock(stmt.getStatements(), new Environment(environment));
-        return null;
+    public Completion visitBlockStmt(final Stmt.Block stmt) {
+        if (stmt.getSize() == 0) return executeBlock(stmt.getStatements(), environment);
+        Environment scope = new Environment(environment, stmt.getSize());
+        Completion completion = executeBlock(stmt.getStatements(), scope);
+        if (stmt.getReleased() != null) scope.release(stmt.getReleased());
+        return completion;
     }
 
     @Override
-    public Void visitClassStmt(Stmt.Class stmt) {
+    public Completion visitClassStmt(Stmt.Class stmt) {
         Object superclass = null;
         if (stmt.getSuperclass() != null) {
             superclass = evaluate(stmt.getSuperclass());
@@ -246,114 +390,149 @@ public class Interpreter implements Expr.Visitor<Object>,
                         SUPER_MUST_BE_CLASS.getMsg());
             }
         }
-        environment.define(stmt.getName().lexeme(), null);
+        define(stmt.getName(), stmt.getSlot(), null);
         if (stmt.getSuperclass() != null) {
-            environment = new Environment(environment);
-            environment.define(SUPER.getName(), superclass);
+            environment = new Environment(environment, 1);
+            environment.define(0, superclass);
         }
-        Map<String, LoxFunction> methods = new HashMap<>();
+        Map<Symbol, LoxFunction> methods = new HashMap<>();
         for (Stmt.Function method : stmt.getMethods()) {
             LoxFunction function = new LoxFunction(method,
                     environment,
-                    method.getName().lexeme().equals(INIT.getName()));
-            methods.put(method.getName().lexeme(), function);
+                    method.getName().symbol() == INIT.getSymbol());
+            methods.put(method.getName().symbol(), function);
         }
         LoxClass clazz = new LoxClass(stmt.getName().lexeme(),
                 (LoxClass) superclass, methods);
         if (superclass != null) {
             environment = environment.getEnclosing();
         }
-        environment.assign(stmt.getName(), clazz);
-        return null;
+        define(stmt.getName(), stmt.getSlot(), clazz);
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitExpressionStmt(final Stmt.Expression stmt) {
+    public Completion visitExpressionStmt(final Stmt.Expression stmt) {
         evaluate(stmt.getExpression());
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitFunctionStmt(final Stmt.Function stmt) {
+    public Completion visitFunctionStmt(final Stmt.Function stmt) {
         LoxFunction function = new LoxFunction(stmt,
                 environment, false);
-        environment.define(stmt.getName().lexeme(), function);
-        return null;
+        define(stmt.getName(), stmt.getSlot(), function);
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitIfStmt(final Stmt.If stmt) {
+    public Completion visitIfStmt(final Stmt.If stmt) {
         if (isTruthy(evaluate(stmt.getCondition()))) {
-            execute(stmt.getThenBranch());
+            return execute(stmt.getThenBranch());
         } else if (stmt.getElseBranch() != null) {
-            execute(stmt.getElseBranch());
+            return execute(stmt.getElseBranch());
         }
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitPrintStmt(final Stmt.Print stmt) {
+    public Completion visitPrintStmt(final Stmt.Print stmt) {
         Object value = evaluate(stmt.getExpression());
         System.out.println(stringify(value));
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitReturnStmt(final Stmt.Return stmt) {
+    public Completion visitReturnStmt(final Stmt.Return stmt) {
         Object value = null;
-        if (stmt.getValue() != null) value = evaluate(stmt.getValue());
-        throw new Return(value);
+        if (stmt.getTail()) {
+            value = tailCall((Expr.Call) stmt.getValue());
+        } else if (stmt.getValue() != null) {
+            value = evaluate(stmt.getValue());
+        }
+        returnValue = value;
+        return Completion.RETURN;
     }
 
     @Override
-    public Void visitVarStmt(final Stmt.Var stmt) {
+    public Completion visitVarStmt(final Stmt.Var stmt) {
         Object value = null;
         if (stmt.getInitializer() != null) {
             value = evaluate(stmt.getInitializer());
         }
-        environment.define(stmt.getName().lexeme(), value);
-        return null;
+        define(stmt.getName(), stmt.getSlot(), value);
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitWhileStmt(final Stmt.While stmt) {
+    public Completion visitWhileStmt(final Stmt.While stmt) {
         while (isTruthy(evaluate(stmt.getCondition()))) {
-            execute(stmt.getBody());
+            if (execute(stmt.getBody()) == Completion.RETURN) {
+                return Completion.RETURN;
+            }
+            if (onBackEdge(stmt, environment)) break;
         }
-        return null;
+        return Completion.NORMAL;
+    }
+
+    /* lets a tiered engine take over a running loop between iterations,
+     * returning true once it has run the loop to completion itself */
+    protected boolean onBackEdge(Stmt.While loop, Environment environment) {
+        return false;
+    }
+
+    /* runs the body of a function no engine compiled, in the environment
+     * of one call, and returns the value it returned */
+    protected Object executeFunction(Stmt.Function declaration, Environment environment) {
+        if (executeBlock(declaration.getBody(), environment) == Completion.NORMAL) {
+            return null;
+        }
+        Object value = returnValue;
+        returnValue = null;
+        return value;
     }
 
     private Object evaluate(Expr expr) {
         return expr.accept(this);
     }
 
-    private void execute(Stmt stmt) {
-        stmt.accept(this);
+    private Completion execute(Stmt stmt) {
+        return stmt.accept(this);
     }
 
-    public void resolve(Expr expr, int depth) {
-        locals.put(expr, depth);
+    private void define(Token name, int slot, Object value) {
+        if (slot == Environment.GLOBAL) {
+            globals.define(name.symbol(), value);
+        } else {
+            environment.define(slot, value);
+        }
     }
 
-    public void executeBlock(List<Stmt> statements, Environment environment) {
+    Completion executeBlock(List<Stmt> statements, Environment environment) {
         Environment previous = this.environment;
         try {
             this.environment = environment;
             for (Stmt statement : statements) {
-                execute(statement);
+                if (execute(statement) == Completion.RETURN) {
+                    return Completion.RETURN;
+                }
             }
+            return Completion.NORMAL;
         } finally {
             this.environment = previous;
         }
     }
 
-    private boolean isEqual(Object lhs, Object rhs) {
+    public static boolean isEqual(Object lhs, Object rhs) {
         if (lhs == null && rhs == null) return true;
         if (lhs == null) return false;
+        if (lhs instanceof CharSequence l && rhs instanceof CharSequence r) {
+            return l.toString().equals(r.toString());
+        }
         return lhs.equals(rhs);
     }
 
-    private String stringify(Object object) {
+    public static String stringify(Object object) {
         if (object == null) return "nil";
 
         if (object instanceof Double) {
@@ -366,7 +545,7 @@ public class Interpreter implements Expr.Visitor<Object>,
         return object.toString();
     }
 
-    private boolean isTruthy(Object object) {
+    public static boolean isTruthy(Object object) {
         if (object == null) return false;
         if (object instanceof Boolean) return (boolean) object;
         return true;
@@ -376,9 +555,4 @@ public class Interpreter implements Expr.Visitor<Object>,
         if (operand instanceof Double) return;
         throw new RuntimeError(operator, OPERAND_NUMBER.getMsg());
     }
-
-    private void checkNumberOperands(Token operator, Object left, Object right) {
-        if (left instanceof Double && right instanceof Double) return;
-        throw new RuntimeError(operator, OPERAND_NUMBERS.getMsg());
-    }
 }
@@ -4,35 +4,99 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.List;
 
+import org.jlox.closures.ClosureInterpreter;
+import org.jlox.closures.TieredInterpreter;
+import org.jlox.jvm.JvmInterpreter;
+import org.jlox.nodes.NodeInterpreter;
+import org.jlox.vm.VM;
+
 public class Lox {
-    private static final Interpreter INTERPRETER = new Interpreter();
+    private static final String ENGINE_FLAG = "--engine=";
+    private static final String PARALLEL_SCAN_FLAG = "--parallel-scan";
+
+    /* pre-linked closures by default: nearly free to build, so short
+     * scripts get most of the speed of the heavier engines */
+    private static Engine ENGINE = new ClosureInterpreter();
+    /* scan a script on every core, at the cost of holding it in memory */
+    private static boolean PARALLEL_SCAN = false;
 
     private static boolean HAD_ERROR = false;
     private static boolean HAD_RUNTIME_ERROR = false;
 
     public static void main(String[] args) throws IOException {
-        if (args.length > 1) {
-            System.out.println("Usage: jlox [script]");
-            System.exit(64);
-        } else if (args.length == 1) {
-            runFile(args[0]);
+        int first = 0;
+        for (; first < args.length && args[first].startsWith("--"); first++) {
+            if (args[first].startsWith(ENGINE_FLAG)) {
+                ENGINE = engine(args[first].substring(ENGINE_FLAG.length()));
+            } else if (args[first].equals(PARALLEL_SCAN_FLAG)) {
+                PARALLEL_SCAN = true;
+            } else {
+                usage();
+            }
+        }
+        if (args.length - first > 1) {
+            usage();
+        } else if (args.length - first == 1) {
+            runFile(args[first]);
         } else {
             runPrompt();
         }
     }
 
+    private static Engine engine(String name) {
+        return switch (name) {
+            case "tree" -> new Interpreter();
+            case "closures" -> new ClosureInterpreter();
+            case "tiered" -> new TieredInterpreter();
+            case "vm" -> new VM();
+            case "nodes" -> new NodeInterpreter();
+            case "jvm" -> new JvmInterpreter();
+            default -> {
+                usage();
+                yield null;
+            }
+        };
+    }
+
+    private static void usage() {
+        System.out.println("Usage: jlox [--engine=closures|tree|tiered|vm|nodes|jvm] [--parallel-scan] [script]");
+        System.exit(64);
+    }
+
+    /* the file is decoded as the scanner reads it, so is never held in
+     * memory whole */
     private static void runFile(String path) throws IOException {
-        byte[] bytes = Files.readAllBytes(Paths.get(path));
-        run(new String(bytes, Charset.defaultCharset()));
+        if (PARALLEL_SCAN) {
+            CharBuffer source = decode(path);
+            run(ParallelScanner.scan(source.array(), source.limit()), true);
+        } else {
+            try (Reader reader = new InputStreamReader(
+                    Files.newInputStream(Paths.get(path)), Charset.defaultCharset())) {
+                run(new Scanner(reader).tokens(), true);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
         if (HAD_ERROR) System.exit(65);
         if (HAD_RUNTIME_ERROR) System.exit(70);
     }
 
+    /* the whole file, decoded straight out of a mapping of it */
+    private static CharBuffer decode(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path))) {
+            return Charset.defaultCharset().decode(
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
     private static void runPrompt() throws IOException {
         Reader input = new InputStreamReader(System.in);
         BufferedReader reader = new BufferedReader(input);
@@ -41,21 +105,20 @@ public class Lox {
             System.out.print("jlox> ");
             String line = reader.readLine();
             if (line == null) break;
-            run(line);
+            run(new Scanner(line).tokens(), false);
             HAD_ERROR = false;
         }
     }
 
-    private static void run(String source) {
-        Scanner scanner = new Scanner(source);
-        List<Token> tokens = scanner.scanTokens();
+    private static void run(TokenBuffer tokens, boolean wholeProgram) {
         Parser parser = new Parser(tokens);
         List<Stmt> statements = parser.parse();
         if (HAD_ERROR) return;
-        Resolver resolver = new Resolver(INTERPRETER);
+        Resolver resolver = new Resolver();
         resolver.resolve(statements);
         if (HAD_ERROR) return;
-        INTERPRETER.interpret(statements);
+        Optimizer optimizer = new Optimizer(wholeProgram);
+        ENGINE.interpret(optimizer.optimize(statements));
     }
 
     public static void error(int line, String message) {
@@ -72,7 +135,7 @@ public class Lox {
 
     public static void runtimeError(RuntimeError error) {
         System.err.println(error.getMessage() +
-                           "\n[line " + error.getToken().line() + "]");
+                           "\n[line " + error.getLine() + "]");
         HAD_RUNTIME_ERROR = true;
     }
 
@@ -1,8 +1,41 @@
 package org.jlox;
 
+import java.util.Arrays;
 import java.util.List;
 
 public interface LoxCallable {
     int arity();
     Object call(Interpreter interpreter, List<Object> args);
+
+    /* Entry points for a known number of arguments, so that call sites
+     * need not gather them into a list first. Callables with nothing
+     * faster to offer are called with the list form. */
+    default Object call0(Interpreter interpreter) {
+        return call(interpreter, List.of());
+    }
+
+    default Object call1(Interpreter interpreter, Object a) {
+        return call(interpreter, Arrays.asList(a));
+    }
+
+    default Object call2(Interpreter interpreter, Object a, Object b) {
+        return call(interpreter, Arrays.asList(a, b));
+    }
+
+    default Object call3(Interpreter interpreter, Object a, Object b, Object c) {
+        return call(interpreter, Arrays.asList(a, b, c));
+    }
+
+    default Object call(Interpreter interpreter, Object[] args) {
+        return call(interpreter, Arrays.asList(args));
+    }
+
+    /* whether a call site passing count arguments can use the callee's
+     * fixed-arity entry point directly; anything else, errors included,
+     * takes the site's general path, which for classes also caches the
+     * initialiser */
+    static boolean isDirect(Object callee, int count) {
+        return callee instanceof LoxCallable callable && !(callable instanceof LoxClass)
+                && callable.arity() == count;
+    }
 }
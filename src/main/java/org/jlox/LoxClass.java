@@ -1,5 +1,6 @@
 package org.jlox;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -7,49 +8,93 @@ import static org.jlox.LoxConstants.INIT;
 
 public class LoxClass implements LoxCallable {
     private final String name;
-    private final LoxClass superclass;
-    private final Map<String, LoxFunction> methods;
+    /* every method the class responds to, inherited ones included */
+    private final Map<Symbol, LoxFunction> methods;
+    private final LoxFunction initialiser;
+    private final Shape rootShape = new Shape();
+    /* the most fields any instance has had, so new ones are sized to fit */
+    private int fieldCapacity;
 
-    LoxClass(final String name, LoxClass superclass,
-             final Map<String, LoxFunction> methods) {
+    public LoxClass(final String name, LoxClass superclass,
+                    final Map<Symbol, LoxFunction> methods) {
         this.name = name;
-        this.superclass = superclass;
-        this.methods = methods;
+        this.methods = flatten(superclass, methods);
+        this.initialiser = this.methods.get(INIT.getSymbol());
     }
 
-    public LoxFunction findMethod(String name) {
-        if (methods.containsKey(name)) {
-            return methods.get(name);
-        }
-        if (superclass != null) {
-            return superclass.findMethod(name);
-        }
-        return null;
+    /* merges the inherited methods in once, when the class is defined, so
+     * a lookup is one probe however deep the hierarchy is */
+    private static Map<Symbol, LoxFunction> flatten(LoxClass superclass,
+                                                    Map<Symbol, LoxFunction> methods) {
+        if (superclass == null) return Map.copyOf(methods);
+        Map<Symbol, LoxFunction> table = new HashMap<>(superclass.methods);
+        table.putAll(methods);
+        return Map.copyOf(table);
+    }
+
+    public LoxFunction findMethod(Symbol name) {
+        return methods.get(name);
     }
 
     public String getName() {
         return name;
     }
 
+    Shape getRootShape() {
+        return rootShape;
+    }
+
+    int getFieldCapacity() {
+        return fieldCapacity;
+    }
+
+    void fitFields(int count) {
+        if (count > fieldCapacity) fieldCapacity = count;
+    }
+
     @Override
     public int arity() {
-        LoxFunction initialiser = getInitialiser();
+        return arity(getInitialiser());
+    }
+
+    public int arity(InlineCache cache) {
+        return arity(getInitialiser(cache));
+    }
+
+    private static int arity(LoxFunction initialiser) {
         if (initialiser == null) return 0;
         return initialiser.arity();
     }
 
     @Override
     public Object call(Interpreter interpreter, List<Object> args) {
+        return instantiate(interpreter, args.toArray(), getInitialiser());
+    }
+
+    public Object call(Interpreter interpreter, Object[] args, InlineCache cache) {
+        return instantiate(interpreter, args, getInitialiser(cache));
+    }
+
+    private Object instantiate(Interpreter interpreter, Object[] args,
+                               LoxFunction initialiser) {
         LoxInstance instance = new LoxInstance(this);
-        LoxFunction initialiser = getInitialiser();
         if (initialiser != null) {
-            initialiser.bind(instance).call(interpreter, args);
+            initialiser.invoke(interpreter, instance, args);
         }
         return instance;
     }
 
     private LoxFunction getInitialiser() {
-        return findMethod(INIT.getName());
+        return initialiser;
+    }
+
+    /* a call site caches each class it constructs with its initialiser */
+    private LoxFunction getInitialiser(InlineCache cache) {
+        int entry = cache.find(this);
+        if (entry >= 0) return (LoxFunction) cache.target(entry);
+        LoxFunction initialiser = getInitialiser();
+        cache.record(this, initialiser);
+        return initialiser;
     }
 
     @Override
@@ -7,12 +7,18 @@ public enum LoxConstants {
     THIS("this");
 
     private final String name;
+    private final Symbol symbol;
 
     LoxConstants(String name) {
         this.name = name;
+        this.symbol = Symbol.intern(name);
     }
 
     public String getName() {
         return name;
     }
+
+    public Symbol getSymbol() {
+        return symbol;
+    }
 }
@@ -2,24 +2,61 @@ package org.jlox;
 
 import java.util.List;
 
-import static org.jlox.LoxConstants.SELF;
-
 public class LoxFunction implements LoxCallable {
+    /* runs the function's statements in the environment of one call */
+    public interface Body {
+        void execute(Environment environment);
+    }
+
+    /* a call in tail position, which the call of the function making it
+     * runs in its place instead of growing the Java stack */
+    public record TailCall(LoxFunction function, Environment closure, Object[] args) {
+    }
+
     private final Stmt.Function declaration;
     private final Environment closure;
     private final boolean isInitialiser;
+    private final Body body;
 
     LoxFunction(final Stmt.Function declaration, final Environment closure,
                 final boolean isInitialiser) {
+        this(declaration, closure, isInitialiser, null);
+    }
+
+    /* engines that execute something other than the syntax tree supply
+     * their own body, otherwise the interpreter walks the declaration */
+    public LoxFunction(final Stmt.Function declaration, final Environment closure,
+                       final boolean isInitialiser, final Body body) {
         this.declaration = declaration;
         this.closure = closure;
         this.isInitialiser = isInitialiser;
+        this.body = body;
     }
 
     public LoxFunction bind(LoxInstance instance) {
-        Environment environment = new Environment(closure);
-        environment.define(SELF.getName(), instance);
-        return new LoxFunction(declaration, environment, isInitialiser);
+        return new LoxFunction(declaration, selfScope(instance), isInitialiser, body);
+    }
+
+    /* calls a method on an instance without first binding it, for call
+     * sites that name the method directly */
+    public Object invoke(final Interpreter interpreter, final LoxInstance instance,
+                         final Object[] args) {
+        Environment self = selfScope(instance);
+        return finish(interpreter, execute(interpreter, self, frame(self, args)));
+    }
+
+    public TailCall tailCall(final Object[] args) {
+        return new TailCall(this, closure, args);
+    }
+
+    public TailCall tailInvoke(final LoxInstance instance, final Object[] args) {
+        return new TailCall(this, selfScope(instance), args);
+    }
+
+    private Environment selfScope(LoxInstance instance) {
+        Environment environment = new Environment(closure, 1);
+        environment.define(0, instance);
+        return environment;
     }
 
     @Override
@@ -29,19 +66,100 @@ public class LoxFunction implements LoxCallable {
 
     @Override
     public Object call(final Interpreter interpreter, final List<Object> args) {
-        Environment environment = new Environment(closure);
-        for (int i = 0; i < arity(); i++) {
-            environment.define(declaration.getParams().get(i).lexeme(),
-                    args.get(i));
+        return call(interpreter, args.toArray());
+    }
+
+    /* The fixed-arity forms fill the parameter slots of a new frame
+     * straight from their arguments, with no array in between. */
+    @Override
+    public Object call0(final Interpreter interpreter) {
+        return finish(interpreter, execute(interpreter, closure, frame()));
+    }
+
+    @Override
+    public Object call1(final Interpreter interpreter, final Object a) {
+        Environment environment = frame();
+        environment.define(0, a);
+        return finish(interpreter, execute(interpreter, closure, environment));
+    }
+
+    @Override
+    public Object call2(final Interpreter interpreter, final Object a, final Object b) {
+        Environment environment = frame();
+        environment.define(0, a);
+        environment.define(1, b);
+        return finish(interpreter, execute(interpreter, closure, environment));
+    }
+
+    @Override
+    public Object call3(final Interpreter interpreter, final Object a, final Object b,
+                        final Object c) {
+        Environment environment = frame();
+        environment.define(0, a);
+        environment.define(1, b);
+        environment.define(2, c);
+        return finish(interpreter, execute(interpreter, closure, environment));
+    }
+
+    @Override
+    public Object call(final Interpreter interpreter, final Object[] args) {
+        return finish(interpreter, execute(interpreter, closure, frame(closure, args)));
+    }
+
+    /* runs the tail call a body ended in, if it did */
+    private static Object finish(final Interpreter interpreter, final Object value) {
+        if (value instanceof TailCall call) return run(interpreter, call);
+        return value;
+    }
+
+    /* runs tail calls one after another in the frame of the call that
+     * started them */
+    private static Object run(final Interpreter interpreter, TailCall call) {
+        while (true) {
+            LoxFunction function = call.function();
+            Object value = function.execute(interpreter, call.closure(),
+                    function.frame(call.closure(), call.args()));
+            if (!(value instanceof TailCall next)) return value;
+            call = next;
         }
+    }
+
+    /* runs the body in environment, a frame made over closure, and gives
+     * back what the call returns, which may be a tail call still to run */
+    private Object execute(final Interpreter interpreter, final Environment closure,
+                           final Environment environment) {
+        /* a tiered engine compiles the declaration once it is hot */
+        Body code = body != null ? body : declaration.getCompiled();
+        Object value = null;
+        /* compiled code, including a loop a tiered engine took over in the
+         * middle of an interpreted call, still returns by throwing */
         try {
-            interpreter.executeBlock(declaration.getBody(), environment);
+            if (code == null) {
+                value = interpreter.executeFunction(declaration, environment);
+            } else {
+                code.execute(environment);
+            }
         } catch (Return returnValue) {
-            if (isInitialiser) return closure.getAt(0, SELF.getName());
-            return returnValue.getValue();
+            value = returnValue.getValue();
+        }
+        /* closures created in the call keep only what they captured */
+        int[] released = declaration.getReleased();
+        if (released != null) environment.release(released);
+        if (isInitialiser) return closure.getAt(0, 0);
+        return value;
+    }
+
+    private Environment frame() {
+        return new Environment(closure, declaration.getSize());
+    }
+
+    private Environment frame(final Environment closure, final Object[] args) {
+        Environment environment = new Environment(closure,
+                declaration.getSize());
+        for (int i = 0; i < args.length; i++) {
+            environment.define(i, args[i]);
         }
-        if (isInitialiser) return closure.getAt(0, SELF.getName());
-        return null;
+        return environment;
     }
 
     @Override
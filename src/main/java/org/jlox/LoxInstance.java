@@ -1,31 +1,111 @@
 package org.jlox;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 import static org.jlox.ErrorMessage.UNDEFINED_PROPERTY;
 
 public class LoxInstance {
     private final LoxClass clazz;
-    private final Map<String, Object> fields = new HashMap<>();
+    private Shape shape;
+    private Object[] fields;
 
     LoxInstance(LoxClass clazz) {
         this.clazz = clazz;
+        this.shape = clazz.getRootShape();
+        this.fields = new Object[clazz.getFieldCapacity()];
     }
 
     public Object get(Token name) {
-        if (fields.containsKey(name.lexeme())) {
-            return fields.get(name.lexeme());
-        }
-        LoxFunction method = clazz.findMethod(name.lexeme());
+        int index = shape.indexOf(name.symbol());
+        if (index >= 0) return fields[index];
+        LoxFunction method = clazz.findMethod(name.symbol());
         if (method != null) return method.bind(this);
-        throw new RuntimeError(name,
-                String.format(UNDEFINED_PROPERTY.getMsg(),
-                        name.lexeme()));
+        throw undefined(name);
+    }
+
+    /* a cached entry is the field's index or the method it names */
+    public Object get(Token name, InlineCache cache) {
+        int entry = cache.find(shape);
+        if (entry >= 0) {
+            Object target = cache.target(entry);
+            if (target instanceof Integer index) return fields[index];
+            return ((LoxFunction) target).bind(this);
+        }
+        int index = shape.indexOf(name.symbol());
+        if (index >= 0) {
+            cache.record(shape, index);
+            return fields[index];
+        }
+        LoxFunction method = clazz.findMethod(name.symbol());
+        if (method == null) throw undefined(name);
+        cache.record(shape, method);
+        return method.bind(this);
+    }
+
+    /* the method a property names, or null if a field shadows it, so a
+     * call site can invoke the method without binding it */
+    public LoxFunction getMethod(Token name, InlineCache cache) {
+        int entry = cache.find(shape);
+        if (entry >= 0) {
+            return cache.target(entry) instanceof LoxFunction method ? method : null;
+        }
+        int index = shape.indexOf(name.symbol());
+        if (index >= 0) {
+            cache.record(shape, index);
+            return null;
+        }
+        LoxFunction method = clazz.findMethod(name.symbol());
+        if (method == null) throw undefined(name);
+        cache.record(shape, method);
+        return method;
     }
 
     public void set(Token name, Object value) {
-        fields.put(name.lexeme(), value);
+        int index = shape.indexOf(name.symbol());
+        if (index < 0) {
+            add(shape.with(name.symbol()), value);
+        } else {
+            fields[index] = value;
+        }
+    }
+
+    /* a cached entry is the field's index or the shape adding it leads to */
+    public void set(Token name, Object value, InlineCache cache) {
+        int entry = cache.find(shape);
+        if (entry >= 0) {
+            Object target = cache.target(entry);
+            if (target instanceof Integer index) {
+                fields[index] = value;
+            } else {
+                add((Shape) target, value);
+            }
+            return;
+        }
+        int index = shape.indexOf(name.symbol());
+        if (index < 0) {
+            Shape next = shape.with(name.symbol());
+            cache.record(shape, next);
+            add(next, value);
+        } else {
+            cache.record(shape, index);
+            fields[index] = value;
+        }
+    }
+
+    private void add(Shape next, Object value) {
+        int index = next.getSize() - 1;
+        if (index == fields.length) {
+            fields = Arrays.copyOf(fields, Math.max(4, fields.length * 2));
+        }
+        clazz.fitFields(next.getSize());
+        shape = next;
+        fields[index] = value;
+    }
+
+    private RuntimeError undefined(Token name) {
+        return new RuntimeError(name,
+                String.format(UNDEFINED_PROPERTY.getMsg(),
+                        name.lexeme()));
     }
 
     @Override
@@ -0,0 +1,346 @@
+package org.jlox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/* Rewrites the resolved syntax tree before it runs. Operators over
+ * literals are folded, logical operators and branches whose condition is
+ * a literal are simplified, and, when the whole program is known, reads
+ * of top-level variables that are never reassigned are replaced by their
+ * value. A node is only rebuilt when something below it changed, and
+ * keeps what the resolver filled in. Nothing that could fail at runtime
+ * is folded, so errors are still reported where and when they were. */
+public class Optimizer implements Expr.Visitor<Expr>, Stmt.Visitor<Stmt> {
+    private final boolean wholeProgram;
+    /* the literal each top-level variable is declared with, unless it is
+     * declared again or assigned anywhere */
+    private final Map<String, Object> constants = new HashMap<>();
+    private final Set<String> variables = new HashSet<>();
+    private final Set<String> assigned = new HashSet<>();
+    /* constants whose declaration the second pass has gone past */
+    private final Set<String> visible = new HashSet<>();
+    private boolean substituting = false;
+
+    /* a REPL line is not the whole program, as later lines may assign
+     * the variables it declares */
+    public Optimizer(boolean wholeProgram) {
+        this.wholeProgram = wholeProgram;
+    }
+
+    public List<Stmt> optimize(List<Stmt> statements) {
+        List<Stmt> folded = optimizeAll(statements);
+        constants.keySet().removeAll(assigned);
+        if (!wholeProgram || constants.isEmpty()) return folded;
+        substituting = true;
+        return optimizeAll(folded);
+    }
+
+    private List<Stmt> optimizeAll(List<Stmt> statements) {
+        List<Stmt> optimized = new ArrayList<>(statements.size());
+        boolean changed = false;
+        for (Stmt statement : statements) {
+            Stmt result = optimize(statement);
+            if (result != null) optimized.add(result);
+            changed |= result != statement;
+        }
+        return changed ? optimized : statements;
+    }
+
+    /* null for a statement that does nothing */
+    private Stmt optimize(Stmt stmt) {
+        return stmt.accept(this);
+    }
+
+    /* for a statement that must stay, such as a loop body */
+    private Stmt optimizeBranch(Stmt stmt) {
+        Stmt result = optimize(stmt);
+        return result != null ? result : emptyBlock();
+    }
+
+    private Expr optimize(Expr expr) {
+        return expr.accept(this);
+    }
+
+    private List<Expr> optimizeExprs(List<Expr> exprs) {
+        List<Expr> optimized = new ArrayList<>(exprs.size());
+        boolean changed = false;
+        for (Expr expr : exprs) {
+            Expr result = optimize(expr);
+            optimized.add(result);
+            changed |= result != expr;
+        }
+        return changed ? optimized : exprs;
+    }
+
+    private static Stmt emptyBlock() {
+        Stmt.Block block = new Stmt.Block(new ArrayList<>());
+        block.setSize(0);
+        return block;
+    }
+
+    private void declare(String name, int slot, boolean constant, Object value) {
+        if (slot != Environment.GLOBAL || substituting) return;
+        if (constant && variables.add(name)) {
+            constants.put(name, value);
+        } else {
+            variables.add(name);
+            constants.remove(name);
+        }
+    }
+
+    @Override
+    public Expr visitAssignExpr(Expr.Assign expr) {
+        if (expr.getDepth() == Environment.GLOBAL) {
+            assigned.add(expr.getName().lexeme());
+        }
+        Expr value = optimize(expr.getValue());
+        if (value == expr.getValue()) return expr;
+        Expr.Assign assign = new Expr.Assign(expr.getName(), value);
+        assign.setDepth(expr.getDepth());
+        assign.setSlot(expr.getSlot());
+        return assign;
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Expr.Binary expr) {
+        Expr left = optimize(expr.getLeft());
+        Expr right = optimize(expr.getRight());
+        if (left instanceof Expr.Literal l && right instanceof Expr.Literal r) {
+            Expr folded = fold(expr.getOperator(), l.getValue(), r.getValue());
+            if (folded != null) return folded;
+        }
+        if (left == expr.getLeft() && right == expr.getRight()) return expr;
+        Expr.Binary binary = new Expr.Binary(left, expr.getOperator(), right);
+        binary.setNumeric(Resolver.isNumeric(expr.getOperator(), left, right));
+        return binary;
+    }
+
+    /* the literal an operator gives for two literals, or null where it
+     * would fail at runtime */
+    private static Expr fold(Token operator, Object l, Object r) {
+        boolean numbers = l instanceof Double && r instanceof Double;
+        return switch (operator.type()) {
+            case PLUS -> {
+                if (numbers) yield literal((double) l + (double) r);
+                if ((l instanceof String || l instanceof Double) &&
+                    (r instanceof String || r instanceof Double)) {
+                    yield literal(String.valueOf(l) + r);
+                }
+                yield null;
+            }
+            case MINUS -> numbers ? literal((double) l - (double) r) : null;
+            case STAR -> numbers ? literal((double) l * (double) r) : null;
+            case SLASH -> numbers && (double) l != 0 && (double) r != 0
+                    ? literal((double) l / (double) r) : null;
+            case GREATER -> numbers ? literal((double) l > (double) r) : null;
+            case GREATER_EQUAL -> numbers ? literal((double) l >= (double) r) : null;
+            case LESS -> numbers ? literal((double) l < (double) r) : null;
+            case LESS_EQUAL -> numbers ? literal((double) l <= (double) r) : null;
+            case EQUAL_EQUAL -> literal(Interpreter.isEqual(l, r));
+            case BANG_EQUAL -> literal(!Interpreter.isEqual(l, r));
+            default -> null;
+        };
+    }
+
+    private static Expr literal(Object value) {
+        return new Expr.Literal(value);
+    }
+
+    @Override
+    public Expr visitCallExpr(Expr.Call expr) {
+        Expr callee = optimize(expr.getCallee());
+        List<Expr> args = optimizeExprs(expr.getArgs());
+        if (callee == expr.getCallee() && args == expr.getArgs()) return expr;
+        return new Expr.Call(callee, expr.getParen(), args);
+    }
+
+    @Override
+    public Expr visitGetExpr(Expr.Get expr) {
+        Expr object = optimize(expr.getObject());
+        if (object == expr.getObject()) return expr;
+        return new Expr.Get(object, expr.getName());
+    }
+
+    /* only the parser needs parentheses */
+    @Override
+    public Expr visitGroupingExpr(Expr.Grouping expr) {
+        return optimize(expr.getExpression());
+    }
+
+    @Override
+    public Expr visitLiteralExpr(Expr.Literal expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitLogicalExpr(Expr.Logical expr) {
+        Expr left = optimize(expr.getLeft());
+        Expr right = optimize(expr.getRight());
+        if (left instanceof Expr.Literal literal) {
+            boolean or = expr.getOperator().type() == TokenType.OR;
+            return Interpreter.isTruthy(literal.getValue()) == or ? left : right;
+        }
+        if (left == expr.getLeft() && right == expr.getRight()) return expr;
+        return new Expr.Logical(left, expr.getOperator(), right);
+    }
+
+    @Override
+    public Expr visitSelfExpr(Expr.Self expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitSetExpr(Expr.Set expr) {
+        Expr object = optimize(expr.getObject());
+        Expr value = optimize(expr.getValue());
+        if (object == expr.getObject() && value == expr.getValue()) return expr;
+        return new Expr.Set(object, expr.getName(), value);
+    }
+
+    @Override
+    public Expr visitSuperExpr(Expr.Super expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Expr.Unary expr) {
+        Expr right = optimize(expr.getRight());
+        if (right instanceof Expr.Literal literal) {
+            Object value = literal.getValue();
+            if (expr.getOperator().type() == TokenType.BANG) {
+                return literal(!Interpreter.isTruthy(value));
+            }
+            if (value instanceof Double number) return literal(-number);
+        }
+        if (right == expr.getRight()) return expr;
+        return new Expr.Unary(expr.getOperator(), right);
+    }
+
+    @Override
+    public Expr visitVariableExpr(Expr.Variable expr) {
+        String name = expr.getName().lexeme();
+        if (expr.getDepth() == Environment.GLOBAL && visible.contains(name)) {
+            return literal(constants.get(name));
+        }
+        return expr;
+    }
+
+    @Override
+    public Stmt visitBlockStmt(Stmt.Block stmt) {
+        List<Stmt> statements = optimizeAll(stmt.getStatements());
+        if (statements == stmt.getStatements()) return stmt;
+        Stmt.Block block = new Stmt.Block(statements);
+        block.setSize(stmt.getSize());
+        block.setReleased(stmt.getReleased());
+        return block;
+    }
+
+    @Override
+    public Stmt visitClassStmt(Stmt.Class stmt) {
+        declare(stmt.getName().lexeme(), stmt.getSlot(), false, null);
+        List<Stmt.Function> methods = new ArrayList<>();
+        boolean changed = false;
+        for (Stmt.Function method : stmt.getMethods()) {
+            Stmt.Function result = optimizeFunction(method);
+            methods.add(result);
+            changed |= result != method;
+        }
+        if (!changed) return stmt;
+        Stmt.Class clazz = new Stmt.Class(stmt.getName(), stmt.getSuperclass(), methods);
+        clazz.setSlot(stmt.getSlot());
+        return clazz;
+    }
+
+    @Override
+    public Stmt visitExpressionStmt(Stmt.Expression stmt) {
+        Expr expression = optimize(stmt.getExpression());
+        if (expression instanceof Expr.Literal) return null;
+        if (expression == stmt.getExpression()) return stmt;
+        return new Stmt.Expression(expression);
+    }
+
+    @Override
+    public Stmt visitFunctionStmt(Stmt.Function stmt) {
+        declare(stmt.getName().lexeme(), stmt.getSlot(), false, null);
+        return optimizeFunction(stmt);
+    }
+
+    private Stmt.Function optimizeFunction(Stmt.Function stmt) {
+        List<Stmt> body = optimizeAll(stmt.getBody());
+        if (body == stmt.getBody()) return stmt;
+        Stmt.Function function = new Stmt.Function(stmt.getName(), stmt.getParams(), body);
+        function.setSlot(stmt.getSlot());
+        function.setSize(stmt.getSize());
+        function.setReleased(stmt.getReleased());
+        return function;
+    }
+
+    @Override
+    public Stmt visitIfStmt(Stmt.If stmt) {
+        Expr condition = optimize(stmt.getCondition());
+        if (condition instanceof Expr.Literal literal) {
+            if (Interpreter.isTruthy(literal.getValue())) {
+                return optimize(stmt.getThenBranch());
+            }
+            return stmt.getElseBranch() == null ? null : optimize(stmt.getElseBranch());
+        }
+        Stmt thenBranch = optimizeBranch(stmt.getThenBranch());
+        Stmt elseBranch = stmt.getElseBranch() == null
+                ? null : optimize(stmt.getElseBranch());
+        if (condition == stmt.getCondition() && thenBranch == stmt.getThenBranch() &&
+            elseBranch == stmt.getElseBranch()) {
+            return stmt;
+        }
+        return new Stmt.If(condition, thenBranch, elseBranch);
+    }
+
+    @Override
+    public Stmt visitPrintStmt(Stmt.Print stmt) {
+        Expr expression = optimize(stmt.getExpression());
+        if (expression == stmt.getExpression()) return stmt;
+        return new Stmt.Print(expression);
+    }
+
+    @Override
+    public Stmt visitReturnStmt(Stmt.Return stmt) {
+        if (stmt.getValue() == null) return stmt;
+        Expr value = optimize(stmt.getValue());
+        if (value == stmt.getValue()) return stmt;
+        Stmt.Return result = new Stmt.Return(stmt.getKeyword(), value);
+        result.setTail(stmt.getTail());
+        return result;
+    }
+
+    @Override
+    public Stmt visitVarStmt(Stmt.Var stmt) {
+        Expr initializer = stmt.getInitializer() == null
+                ? null : optimize(stmt.getInitializer());
+        String name = stmt.getName().lexeme();
+        declare(name, stmt.getSlot(), initializer == null || initializer instanceof Expr.Literal,
+                initializer instanceof Expr.Literal literal ? literal.getValue() : null);
+        if (substituting && stmt.getSlot() == Environment.GLOBAL &&
+            constants.containsKey(name)) {
+            visible.add(name);
+        }
+        if (initializer == stmt.getInitializer()) return stmt;
+        Stmt.Var var = new Stmt.Var(stmt.getName(), initializer);
+        var.setSlot(stmt.getSlot());
+        return var;
+    }
+
+    @Override
+    public Stmt visitWhileStmt(Stmt.While stmt) {
+        Expr condition = optimize(stmt.getCondition());
+        if (condition instanceof Expr.Literal literal &&
+            !Interpreter.isTruthy(literal.getValue())) {
+            return null;
+        }
+        Stmt body = optimizeBranch(stmt.getBody());
+        if (condition == stmt.getCondition() && body == stmt.getBody()) return stmt;
+        return new Stmt.While(condition, body);
+    }
+}
@@ -0,0 +1,103 @@
+package org.jlox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static org.jlox.TokenType.STRING;
+
+/* Scans a source already in memory on the common ForkJoin pool. The source
+ * is cut into chunks just after newlines, and each chunk after the first
+ * is scanned as though it started between tokens on line 0. That guess is
+ * wrong where a chunk starts inside a string or comment, so the chunks are
+ * then stitched together in order: whenever the scan so far does not end
+ * exactly where the next chunk starts, it is continued one token at a time
+ * until it reaches a place the chunk's scan also started a token from,
+ * after which the two agree. The tokens, lines and errors come out as the
+ * sequential Scanner would give them. A chunk's task interns identifiers
+ * in a table of its own and takes the symbol table's lock only once, at
+ * the end, rather than for every identifier. */
+final class ParallelScanner {
+    /* chunks smaller than this are not worth a task */
+    private static final int MIN_CHUNK = 1 << 18;
+
+    private ParallelScanner() {}
+
+    static TokenBuffer scan(char[] source, int length) {
+        int chunks = Math.min(4 * ForkJoinPool.getCommonPoolParallelism(),
+                length / MIN_CHUNK);
+        if (Runtime.getRuntime().availableProcessors() == 1) chunks = 1;
+        return scan(source, length, chunks);
+    }
+
+    static TokenBuffer scan(char[] source, int length, int chunks) {
+        int[] bounds = bounds(source, length, Math.max(1, chunks));
+        List<ForkJoinTask<Scanner>> tasks = new ArrayList<>();
+        for (int k = 1; k < bounds.length - 1; k++) {
+            int from = bounds[k];
+            int to = bounds[k + 1];
+            tasks.add(ForkJoinTask.adapt(() -> {
+                Scanner chunk = new Scanner(source, length, true);
+                chunk.scan(from, to, 0, at -> false);
+                chunk.resolve();
+                return chunk;
+            }).fork());
+        }
+
+        Scanner scanner = new Scanner(source, length, false);
+        TokenBuffer tokens = scanner.tokens();
+        scanner.scan(0, bounds[1], 1, at -> false);
+        int position = scanner.position();
+        int line = scanner.line();
+        for (int k = 1; k < bounds.length - 1; k++) {
+            Scanner chunk = tasks.get(k - 1).join();
+            TokenBuffer guess = chunk.tokens();
+            int from = bounds[k];
+            if (position != from) {
+                scanner.scan(position, bounds[k + 1], line, at -> agrees(guess, at));
+                position = scanner.position();
+                line = scanner.line();
+                if (!agrees(guess, position)) continue;
+                from = position;
+            }
+            /* the chunk's scan was in step from here, bar its line count */
+            int index = guess.indexFrom(from);
+            int shift = line - (from == bounds[k] ? 0 : guess.line(index));
+            tokens.append(guess, index, shift);
+            for (Scanner.ScanError error : chunk.errors()) {
+                if (error.start() >= from) {
+                    Lox.error(error.line() + shift, error.message());
+                }
+            }
+            position = chunk.position();
+            line = chunk.line() + shift;
+        }
+        scanner.finish(line);
+        return tokens;
+    }
+
+    /* whether the chunk's scan started a token at position other than a
+     * string, which may span lines, so whose line is not where it starts */
+    private static boolean agrees(TokenBuffer guess, int position) {
+        int index = guess.indexFrom(position);
+        return index < guess.end() && guess.start(index) == position
+                && guess.type(index) != STRING;
+    }
+
+    /* chunk k is source[bounds[k], bounds[k + 1]), and each chunk but the
+     * first starts just after a newline */
+    private static int[] bounds(char[] source, int length, int chunks) {
+        chunks = Math.min(chunks, Math.max(1, length));
+        int[] bounds = new int[chunks + 1];
+        int count = 1;
+        for (int k = 1; k < chunks; k++) {
+            int at = (int) ((long) length * k / chunks);
+            while (at < length && source[at - 1] != '\n') at++;
+            if (at > bounds[count - 1] && at < length) bounds[count++] = at;
+        }
+        bounds[count++] = length;
+        return Arrays.copyOf(bounds, count);
+    }
+}
@@ -2,17 +2,44 @@ package org.jlox;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.concurrent.Callable;
+import java.util.Map;
 
 import static org.jlox.ErrorMessage.*;
 import static org.jlox.TokenType.*;
 
 public class Parser {
-    private final List<Token> tokens;
+    /* how tightly each binary operator binds, loosest first */
+    private enum Precedence {
+        OR, AND, EQUALITY, COMPARISON, TERM, FACTOR, UNARY;
+
+        Precedence tighter() {
+            return values()[ordinal() + 1];
+        }
+    }
+
+    private static final Map<TokenType, Precedence> BINARY = new EnumMap<>(TokenType.class);
+
+    static {
+        BINARY.put(OR, Precedence.OR);
+        BINARY.put(AND, Precedence.AND);
+        BINARY.put(EQUAL_EQUAL, Precedence.EQUALITY);
+        BINARY.put(BANG_EQUAL, Precedence.EQUALITY);
+        BINARY.put(GREATER, Precedence.COMPARISON);
+        BINARY.put(GREATER_EQUAL, Precedence.COMPARISON);
+        BINARY.put(LESS, Precedence.COMPARISON);
+        BINARY.put(LESS_EQUAL, Precedence.COMPARISON);
+        BINARY.put(MINUS, Precedence.TERM);
+        BINARY.put(PLUS, Precedence.TERM);
+        BINARY.put(SLASH, Precedence.FACTOR);
+        BINARY.put(STAR, Precedence.FACTOR);
+    }
+
+    private final TokenBuffer tokens;
     private int current = 0;
 
-    Parser(List<Token> tokens) {
+    public Parser(TokenBuffer tokens) {
         this.tokens = tokens;
     }
 
@@ -166,7 +193,7 @@ public class Parser {
     }
 
     private Expr assignment() {
-        Expr expr = or();
+        Expr expr = binary(Precedence.OR);
         if (match(EQUAL)) {
             Token equals = previous();
             Expr value = assignment();
@@ -181,43 +208,25 @@ public class Parser {
         return expr;
     }
 
-    private Expr or() {
-        return conditional(this::and, OR);
-    }
-
-    private Expr and() {
-        return conditional(this::equality, AND);
-    }
-
-    private Expr conditional(Callable<Expr> exprType, TokenType type) {
-        try {
-            Expr expr = exprType.call();
-            while (match(type)) {
-                Token operator = previous();
-                Expr right = exprType.call();
-                expr = new Expr.Logical(expr, operator, right);
+    /* Precedence climbing: an operand, then every binary operator that
+     * binds at least as tightly as least, each taking as its right operand
+     * what follows up to the next operator that binds no tighter than it.
+     * Left operands build up in the loop, so an expression only nests as
+     * deep as the precedence levels however long it is. */
+    private Expr binary(Precedence least) {
+        Expr left = unary();
+        for (;;) {
+            Precedence precedence = BINARY.get(tokens.type(current));
+            if (precedence == null || precedence.compareTo(least) < 0) return left;
+            advance();
+            Token operator = previous();
+            Expr right = binary(precedence.tighter());
+            if (precedence == Precedence.OR || precedence == Precedence.AND) {
+                left = new Expr.Logical(left, operator, right);
+            } else {
+                left = new Expr.Binary(left, operator, right);
             }
-            return expr;
-        } catch (Exception e) {
-            System.err.println(COND_ERROR.getMsg());
         }
-        return null;
-    }
-
-    private Expr equality() {
-        return binary(this::comparison, Arrays.asList(EQUAL_EQUAL, BANG_EQUAL));
-    }
-
-    private Expr comparison() {
-        return binary(this::term, Arrays.asList(GREATER, GREATER_EQUAL, LESS, LESS_EQUAL));
-    }
-
-    private Expr term() {
-        return binary(this::factor, Arrays.asList(MINUS, PLUS));
-    }
-
-    private Expr factor() {
-        return binary(this::unary, Arrays.asList(SLASH, STAR));
     }
 
     private Expr unary() {
@@ -265,7 +274,7 @@ public class Parser {
         if (match(TRUE)) return new Expr.Literal(true);
         if (match(NIL)) return new Expr.Literal(null);
         if (match(NUMBER, STRING)) {
-            return new Expr.Literal(previous().literal());
+            return new Expr.Literal(tokens.literal(current - 1));
         }
         if (match(SUPER)) {
             Token keyword = previous();
@@ -286,28 +295,11 @@ public class Parser {
         throw error(peek(), NO_EXPR.getMsg());
     }
 
-    private Expr binary(Callable<Expr> exprType, List<TokenType> types) {
-        try {
-            Expr left = exprType.call();
-            while (match(types.toArray(TokenType[]::new))) {
-                Token operator = previous();
-                Expr right = exprType.call();
-                if (right == null) {
-                    throw error(operator,
-                            String.format(NO_RHS.getMsg(),
-                                    operator.lexeme()));
-                }
-                left = new Expr.Binary(left, operator, right);
-            }
-            return left;
-        } catch (Exception e) {
-            System.err.println(EXPR_ERROR.getMsg());
-        }
-        return null;
-    }
-
     private Token consume(TokenType type, String message) throws ParseError {
-        if (check(type)) return advance();
+        if (check(type)) {
+            advance();
+            return previous();
+        }
         throw error(peek(), message);
     }
 
@@ -319,8 +311,8 @@ public class Parser {
     private void synchronize() {
         advance();
         while (!isAtEnd()) {
-            if (previous().type() == SEMICOLON) return;
-            switch (peek().type()) {
+            if (tokens.type(current - 1) == SEMICOLON) return;
+            switch (tokens.type(current)) {
                 case CLASS, FOR, FUNC, IF, PRINT, RETURN, LET, WHILE -> {
                     return;
                 }
@@ -350,18 +342,22 @@ public class Parser {
 
     private boolean check(TokenType type) {
         if (isAtEnd()) return false;
-        return peek().type() == type;
+        return tokens.type(current) == type;
     }
 
-    private Token advance() {
+    /* nothing looks further back than the previous token */
+    private void advance() {
         if (!isAtEnd()) current++;
-        return previous();
+        tokens.release(current - 1);
     }
 
     private boolean isAtEnd() {
-        return peek().type() == EOF;
+        return tokens.type(current) == EOF;
     }
 
+    /* peek and previous build a Token, so are only for tokens the tree
+     * or an error message keeps */
+
     private Token peek() {
         return tokens.get(current);
     }
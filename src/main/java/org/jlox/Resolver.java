@@ -9,15 +9,12 @@ import static org.jlox.ErrorMessage.*;
 import static org.jlox.LoxConstants.*;
 
 public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
-    private final Interpreter interpreter;
-    private final Stack<Map<String, Boolean>> scopes = new Stack<>();
+    private final Stack<Scope> scopes = new Stack<>();
     private FunctionType currentFunction = FunctionType.NONE;
+    /* how many functions the resolver is inside */
+    private int functionDepth = 0;
     private ClassType currentClass = ClassType.NONE;
 
-    Resolver(final Interpreter interpreter) {
-        this.interpreter = interpreter;
-    }
-
     private enum FunctionType {
         NONE,
         FUNCTION,
@@ -31,6 +28,26 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         SUBCLASS
     }
 
+    private static final class Local {
+        private final int slot;
+        private final int functionDepth;
+        private boolean defined = false;
+        /* set once a function nested inside the declaring one uses it */
+        private boolean captured = false;
+
+        Local(int slot, int functionDepth) {
+            this.slot = slot;
+            this.functionDepth = functionDepth;
+        }
+    }
+
+    private static final class Scope {
+        private final Map<String, Local> locals = new HashMap<>();
+        /* set once a function is declared inside, as its closure then
+         * keeps the scope's environment alive */
+        private boolean enclosesFunction = false;
+    }
+
     public void resolve(List<Stmt> statements) {
         for (Stmt statement : statements) {
             resolve(statement);
@@ -46,53 +63,93 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     }
 
     private void beginScope() {
-        scopes.push(new HashMap<>());
+        scopes.push(new Scope());
     }
 
-    private void endScope() {
-        scopes.pop();
+    /* returns the number of slots the scope's environment needs */
+    private int endScope() {
+        return scopes.pop().locals.size();
     }
 
-    private void declare(Token name) {
-        if (scopes.isEmpty()) return;
-        Map<String, Boolean> scope = scopes.peek();
-        if (scope.containsKey(name.lexeme())) {
+    /* The slots of the innermost scope no closure uses, which an engine
+     * clears when the scope exits so that closures created in it only
+     * keep what they captured alive. Null if no closure is created in
+     * the scope, as then nothing outlives it. */
+    private int[] released() {
+        Scope scope = scopes.peek();
+        if (!scope.enclosesFunction) return null;
+        return scope.locals.values().stream()
+                .filter(local -> !local.captured)
+                .mapToInt(local -> local.slot)
+                .sorted()
+                .toArray();
+    }
+
+    private int declare(Token name) {
+        if (scopes.isEmpty()) return Environment.GLOBAL;
+        Scope scope = scopes.peek();
+        Local local = scope.locals.get(name.lexeme());
+        if (local != null) {
             Lox.error(name, EXISTING_VARIABLE.getMsg());
+            return local.slot;
         }
-        scope.put(name.lexeme(), false);
+        local = new Local(scope.locals.size(), functionDepth);
+        scope.locals.put(name.lexeme(), local);
+        return local.slot;
     }
 
     private void define(Token name) {
         if (scopes.isEmpty()) return;
-        scopes.peek().put(name.lexeme(), true);
+        scopes.peek().locals.get(name.lexeme()).defined = true;
     }
 
-    private void resolveLocal(Expr expr, Token name) {
+    private void defineImplicit(String name) {
+        Local local = new Local(scopes.peek().locals.size(), functionDepth);
+        local.defined = true;
+        scopes.peek().locals.put(name, local);
+    }
+
+    /* number of scopes between the innermost one and the declaration */
+    private int resolveDepth(Token name) {
         for (int i = scopes.size() - 1; i >= 0; i--) {
-            if (scopes.get(i).containsKey(name.lexeme())) {
-                interpreter.resolve(expr, scopes.size() - 1 - i);
-                return;
+            if (scopes.get(i).locals.containsKey(name.lexeme())) {
+                return scopes.size() - 1 - i;
             }
         }
+        return Environment.GLOBAL;
+    }
+
+    private int resolveSlot(Token name, int depth) {
+        if (depth == Environment.GLOBAL) return Environment.GLOBAL;
+        Local local = scopes.get(scopes.size() - 1 - depth).locals.get(name.lexeme());
+        if (local.functionDepth < functionDepth) local.captured = true;
+        return local.slot;
     }
 
     private void resolveFunction(Stmt.Function function, FunctionType type) {
         FunctionType enclosingFunction = currentFunction;
         currentFunction = type;
+        for (Scope scope : scopes) {
+            scope.enclosesFunction = true;
+        }
+        functionDepth++;
         beginScope();
         for (Token param : function.getParams()) {
             declare(param);
             define(param);
         }
         resolve(function.getBody());
-        endScope();
+        function.setReleased(released());
+        function.setSize(endScope());
+        functionDepth--;
         currentFunction = enclosingFunction;
     }
 
     @Override
     public Void visitAssignExpr(Expr.Assign expr) {
         resolve(expr.getValue());
-        resolveLocal(expr, expr.getName());
+        expr.setDepth(resolveDepth(expr.getName()));
+        expr.setSlot(resolveSlot(expr.getName(), expr.getDepth()));
         return null;
     }
 
@@ -100,9 +157,32 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     public Void visitBinaryExpr(Expr.Binary expr) {
         resolve(expr.getLeft());
         resolve(expr.getRight());
+        expr.setNumeric(isNumeric(expr.getOperator(), expr.getLeft(), expr.getRight()));
         return null;
     }
 
+    /* whether a binary operator can only give a number */
+    static boolean isNumeric(Token operator, Expr left, Expr right) {
+        return switch (operator.type()) {
+            case MINUS, STAR, SLASH -> true;
+            case PLUS -> isNumeric(left) && isNumeric(right);
+            default -> false;
+        };
+    }
+
+    /* whether an expression can only evaluate to a number, if it does not
+     * fail, which lets the interpreter keep its value unboxed */
+    static boolean isNumeric(Expr expr) {
+        if (expr instanceof Expr.Binary binary) return binary.getNumeric();
+        if (expr instanceof Expr.Unary unary) {
+            return unary.getOperator().type() == TokenType.MINUS;
+        }
+        if (expr instanceof Expr.Grouping grouping) {
+            return isNumeric(grouping.getExpression());
+        }
+        return expr instanceof Expr.Literal literal && literal.getValue() instanceof Double;
+    }
+
     @Override
     public Void visitCallExpr(Expr.Call expr) {
         resolve(expr.getCallee());
@@ -131,7 +211,8 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
             Lox.error(expr.getKeyword(),
                     THIS_NO_CLASS.getMsg());
         }
-        resolveLocal(expr, expr.getKeyword());
+        expr.setDepth(resolveDepth(expr.getKeyword()));
+        expr.setSlot(resolveSlot(expr.getKeyword(), expr.getDepth()));
         return null;
     }
 
@@ -151,7 +232,8 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
             Lox.error(expr.getKeyword(),
                     SUPER_NO_SUPERCLASS.getMsg());
         }
-        resolveLocal(expr, expr.getKeyword());
+        expr.setDepth(resolveDepth(expr.getKeyword()));
+        expr.setSlot(resolveSlot(expr.getKeyword(), expr.getDepth()));
         return null;
     }
 
@@ -169,10 +251,12 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     @Override
     public Void visitVariableExpr(Expr.Variable expr) {
         if (!scopes.isEmpty() &&
-            scopes.peek().get(expr.getName().lexeme()) == Boolean.FALSE) {
+            scopes.peek().locals.containsKey(expr.getName().lexeme()) &&
+            !scopes.peek().locals.get(expr.getName().lexeme()).defined) {
             Lox.error(expr.getName(), INIT_ACCESS.getMsg());
         }
-        resolveLocal(expr, expr.getName());
+        expr.setDepth(resolveDepth(expr.getName()));
+        expr.setSlot(resolveSlot(expr.getName(), expr.getDepth()));
         return null;
     }
 
@@ -184,17 +268,35 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
     @Override
     public Void visitBlockStmt(Stmt.Block stmt) {
+        /* a block that declares nothing, such as the one a for loop wraps
+         * its body and increment in, gets no scope of its own: it is left
+         * with size 0 and runs in the enclosing environment */
+        if (!declares(stmt.getStatements())) {
+            resolve(stmt.getStatements());
+            return null;
+        }
         beginScope();
         resolve(stmt.getStatements());
-        endScope();
+        stmt.setReleased(released());
+        stmt.setSize(endScope());
         return null;
     }
 
+    private static boolean declares(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            if (statement instanceof Stmt.Var || statement instanceof Stmt.Function ||
+                statement instanceof Stmt.Class) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public Void visitClassStmt(Stmt.Class stmt) {
         ClassType enclosingClass = currentClass;
         currentClass = ClassType.CLASS;
-        declare(stmt.getName());
+        stmt.setSlot(declare(stmt.getName()));
         define(stmt.getName());
         if (stmt.getSuperclass() != null) {
             if (stmt.getName().lexeme().equals(
@@ -206,10 +308,10 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
             currentClass = ClassType.SUBCLASS;
             resolve(stmt.getSuperclass());
             beginScope();
-            scopes.peek().put(SUPER.getName(), true);
+            defineImplicit(SUPER.getName());
         }
         beginScope();
-        scopes.peek().put(SELF.getName(), true);
+        defineImplicit(SELF.getName());
         for (Stmt.Function method : stmt.getMethods()) {
             FunctionType declaration = FunctionType.METHOD;
             if (method.getName().lexeme().equals(INIT.getName())) {
@@ -231,7 +333,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
     @Override
     public Void visitFunctionStmt(Stmt.Function stmt) {
-        declare(stmt.getName());
+        stmt.setSlot(declare(stmt.getName()));
         define(stmt.getName());
         resolveFunction(stmt, FunctionType.FUNCTION);
         return null;
@@ -264,13 +366,15 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
                         RETURN_FROM_INIT.getMsg());
             }
             resolve(stmt.getValue());
+            /* the call's frame can replace the returning function's */
+            stmt.setTail(stmt.getValue() instanceof Expr.Call);
         }
         return null;
     }
 
     @Override
     public Void visitVarStmt(Stmt.Var stmt) {
-        declare(stmt.getName());
+        stmt.setSlot(declare(stmt.getName()));
         if (stmt.getInitializer() != null) {
             resolve(stmt.getInitializer());
         }
@@ -3,7 +3,7 @@ package org.jlox;
 public class Return extends RuntimeException {
     final private Object value;
 
-    Return(Object value) {
+    public Return(Object value) {
         super(null, null, false, false);
         this.value = value;
     }
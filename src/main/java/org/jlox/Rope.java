@@ -0,0 +1,78 @@
+package org.jlox;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/* A Lox string built by '+' that has not been looked at yet. Concatenating
+ * onto one only links the two halves, so building a long string a piece at
+ * a time copies each character once, when it is first printed, compared or
+ * indexed, rather than on every step. Short results are still copied into
+ * a plain String straight away, as that is cheaper than the extra node.
+ * Every Lox string value is either a String or a Rope, so code asking
+ * whether a value is a string tests for CharSequence. */
+public final class Rope implements CharSequence {
+    private static final int SHORT = 256;
+
+    private CharSequence left;
+    private CharSequence right;
+    private final int length;
+    private String flat;
+
+    private Rope(CharSequence left, CharSequence right) {
+        this.left = left;
+        this.right = right;
+        this.length = left.length() + right.length();
+    }
+
+    /* the string '+' gives for two operands that are each a string or a
+     * number, with numbers written the way Java writes them */
+    public static CharSequence concat(Object l, Object r) {
+        CharSequence a = l instanceof CharSequence s ? s : String.valueOf(l);
+        CharSequence b = r instanceof CharSequence s ? s : String.valueOf(r);
+        if (a.length() + b.length() < SHORT) return a.toString() + b;
+        if (a.isEmpty()) return b;
+        if (b.isEmpty()) return a;
+        return new Rope(a, b);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    /* copies the leaves into place from the right, with an explicit stack
+     * since a string built in a loop is a rope as deep as the loop ran */
+    @Override
+    public String toString() {
+        if (flat != null) return flat;
+        char[] chars = new char[length];
+        int end = length;
+        Deque<CharSequence> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            CharSequence next = pending.pop();
+            if (next instanceof Rope rope && rope.flat == null) {
+                pending.push(rope.left);
+                pending.push(rope.right);
+            } else {
+                String leaf = next.toString();
+                end -= leaf.length();
+                leaf.getChars(0, leaf.length(), chars, end);
+            }
+        }
+        flat = new String(chars);
+        left = null;
+        right = null;
+        return flat;
+    }
+}
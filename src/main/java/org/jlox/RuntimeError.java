@@ -1,14 +1,18 @@
 package org.jlox;
 
-class RuntimeError extends RuntimeException {
-    final Token token;
+public class RuntimeError extends RuntimeException {
+    final int line;
 
-    RuntimeError(Token token, String message) {
+    public RuntimeError(Token token, String message) {
+        this(token.line(), message);
+    }
+
+    public RuntimeError(int line, String message) {
         super(message);
-        this.token = token;
+        this.line = line;
     }
 
-    public Token getToken() {
-        return token;
+    public int getLine() {
+        return line;
     }
 }
@@ -1,9 +1,12 @@
 package org.jlox;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.function.IntPredicate;
 
 import static org.jlox.TokenType.AND;
 import static org.jlox.TokenType.BANG;
@@ -45,51 +48,145 @@ import static org.jlox.TokenType.SELF;
 import static org.jlox.TokenType.TRUE;
 import static org.jlox.TokenType.WHILE;
 
-public class Scanner {
-    private static final Map<String, TokenType> KEYWORDS;
-
-    static {
-        KEYWORDS = new HashMap<>();
-        KEYWORDS.put("and", AND);
-        KEYWORDS.put("class", CLASS);
-        KEYWORDS.put("else", ELSE);
-        KEYWORDS.put("false", FALSE);
-        KEYWORDS.put("for", FOR);
-        KEYWORDS.put("func", FUNC);
-        KEYWORDS.put("if", IF);
-        KEYWORDS.put("nil", NIL);
-        KEYWORDS.put("or", OR);
-        KEYWORDS.put("print", PRINT);
-        KEYWORDS.put("return", RETURN);
-        KEYWORDS.put("super", SUPER);
-        KEYWORDS.put("self", SELF);
-        KEYWORDS.put("true", TRUE);
-        KEYWORDS.put("let", LET);
-        KEYWORDS.put("while", WHILE);
-    }
-
-    private final String source;
-    private final List<Token> tokens = new ArrayList<>();
+/* Reads the source a chunk at a time, and scans only as far as the
+ * parser has asked for tokens. The characters kept are those from the
+ * oldest token the parser still holds onwards, so memory does not grow
+ * with the size of the source. */
+public final class Scanner {
+    private static final int CHUNK = 8192;
+
+    private final Reader reader;
+    private final TokenBuffer tokens;
+    /* where a speculative scan keeps its errors until it is known
+     * whether they are real, null when errors are reported directly */
+    private final List<ScanError> errors;
+    /* where a speculative scan interns its identifiers until resolve(),
+     * null when they are interned directly */
+    private final Symbol.Local names;
+    /* chars[0] is the character at offset in the source, and the source
+     * has been read up to limit */
+    private char[] chars = new char[2 * CHUNK];
+    private int offset = 0;
+    private int limit = 0;
+    private boolean exhausted = false;
     private int start = 0;
     private int current = 0;
     private int line = 1;
 
     public Scanner(String source) {
-        this.source = source;
+        this(new StringReader(source));
+    }
+
+    public Scanner(Reader reader) {
+        this.reader = reader;
+        this.tokens = new TokenBuffer(this);
+        this.errors = null;
+        this.names = null;
     }
 
-    public List<Token> scanTokens() {
-        while (!isAtEnd()) {
+    /* scans source[0, length), all already in memory, a range at a time */
+    Scanner(char[] source, int length, boolean speculative) {
+        this.reader = null;
+        this.tokens = new TokenBuffer(this);
+        this.errors = speculative ? new ArrayList<>() : null;
+        this.names = speculative ? new Symbol.Local() : null;
+        this.chars = source;
+        this.limit = length;
+        this.exhausted = true;
+    }
+
+    /* an error found at a token that starts at start */
+    record ScanError(int start, int line, String message) {}
+
+    /* the tokens, scanned as they are asked for */
+    public TokenBuffer tokens() {
+        return tokens;
+    }
+
+    /* scans until at least one more token has been added */
+    void scanNext() {
+        int size = tokens.end();
+        while (tokens.end() == size) {
+            if (isAtEnd()) {
+                tokens.add(EOF, current, 0, line, null);
+                return;
+            }
             start = current;
             scanToken();
         }
+    }
 
-        tokens.add(new Token(EOF, "", null, line));
-        return tokens;
+    /* Scans from position from, in the state the scanner is in between
+     * tokens and on the given line, until reaching to or a position
+     * between tokens that stop accepts. A token started before to is
+     * scanned to its end, wherever that is. */
+    void scan(int from, int to, int line, IntPredicate stop) {
+        this.current = from;
+        this.line = line;
+        while (current < to && !isAtEnd() && !stop.test(current)) {
+            start = current;
+            scanToken();
+        }
+    }
+
+    /* where the last scan stopped */
+    int position() {
+        return current;
+    }
+
+    int line() {
+        return line;
+    }
+
+    /* ends the tokens, at the end of the source */
+    void finish(int line) {
+        tokens.add(EOF, limit, 0, line, null);
+    }
+
+    /* gives a speculative scan's identifiers their symbols */
+    void resolve() {
+        names.resolve();
+        tokens.resolve();
+    }
+
+    List<ScanError> errors() {
+        return errors;
+    }
+
+    /* the text of source[start, start + length), which must be at or after
+     * the oldest token the buffer holds */
+    String text(int start, int length) {
+        return new String(chars, start - offset, length);
     }
 
     private boolean isAtEnd() {
-        return current >= source.length();
+        return current >= limit && !fill();
+    }
+
+    /* reads the next chunk of the source, first dropping the characters
+     * that neither a held token nor the one being scanned still needs */
+    private boolean fill() {
+        if (exhausted) return false;
+        int keep = Math.min(start, tokens.heldFrom());
+        int live = limit - keep;
+        char[] target = chars;
+        if (chars.length - live < CHUNK) {
+            target = new char[Math.max(2 * chars.length, live + CHUNK)];
+        }
+        System.arraycopy(chars, keep - offset, target, 0, live);
+        chars = target;
+        offset = keep;
+        try {
+            int read = reader.read(chars, live, chars.length - live);
+            if (read < 0) {
+                exhausted = true;
+                return false;
+            }
+            limit += read;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     private void scanToken() {
@@ -148,7 +245,7 @@ public class Scanner {
                 } else if (isAlpha(c)) {
                     identifier();
                 } else {
-                    Lox.error(line, "Unexpected character.");
+                    error("Unexpected character.");
                 }
                 break;
         }
@@ -159,29 +256,36 @@ public class Scanner {
     }
 
     private void addToken(final TokenType type, final Object literal) {
-        String text = source.substring(start, current);
-        tokens.add(new Token(type, text, literal, line));
+        tokens.add(type, start, current - start, line, literal);
+    }
+
+    private void error(String message) {
+        if (errors == null) {
+            Lox.error(line, message);
+        } else {
+            errors.add(new ScanError(start, line, message));
+        }
     }
 
     private boolean match(final char expected) {
         if (isAtEnd()) return false;
-        if (source.charAt(current) != expected) return false;
+        if (chars[current - offset] != expected) return false;
         current++;
         return true;
     }
 
     private char peek() {
         if (isAtEnd()) return '\0';
-        return source.charAt(current);
+        return chars[current - offset];
     }
 
     private char peekNext() {
-        if (current + 1 >= source.length()) return '\0';
-        return source.charAt(current + 1);
+        if (current + 1 >= limit && !fill()) return '\0';
+        return chars[current + 1 - offset];
     }
 
     private char advance() {
-        return source.charAt(current++);
+        return chars[current++ - offset];
     }
 
     private boolean isAlpha(final char c) {
@@ -196,10 +300,59 @@ public class Scanner {
 
     private void identifier() {
         while (isAlphaNumeric(peek())) advance();
-        String text = source.substring(start, current);
-        TokenType type = KEYWORDS.get(text);
-        if (type == null) type = IDENTIFIER;
-        addToken(type);
+        TokenType type = keyword();
+        if (type != null) {
+            addToken(type);
+        } else {
+            int from = start - offset;
+            int to = current - offset;
+            addToken(IDENTIFIER, names == null ? Symbol.intern(chars, from, to)
+                    : names.intern(chars, from, to));
+        }
+    }
+
+    /* the keyword the identifier just scanned spells, if any, told apart
+     * by its first letters and length rather than by hashing it */
+    private TokenType keyword() {
+        return switch (chars[start - offset]) {
+            case 'a' -> keyword(1, "nd", AND);
+            case 'c' -> keyword(1, "lass", CLASS);
+            case 'e' -> keyword(1, "lse", ELSE);
+            case 'f' -> {
+                if (current - start < 2) yield null;
+                yield switch (chars[start + 1 - offset]) {
+                    case 'a' -> keyword(2, "lse", FALSE);
+                    case 'o' -> keyword(2, "r", FOR);
+                    case 'u' -> keyword(2, "nc", FUNC);
+                    default -> null;
+                };
+            }
+            case 'i' -> keyword(1, "f", IF);
+            case 'l' -> keyword(1, "et", LET);
+            case 'n' -> keyword(1, "il", NIL);
+            case 'o' -> keyword(1, "r", OR);
+            case 'p' -> keyword(1, "rint", PRINT);
+            case 'r' -> keyword(1, "eturn", RETURN);
+            case 's' -> {
+                if (current - start < 2) yield null;
+                yield switch (chars[start + 1 - offset]) {
+                    case 'e' -> keyword(2, "lf", SELF);
+                    case 'u' -> keyword(2, "per", SUPER);
+                    default -> null;
+                };
+            }
+            case 't' -> keyword(1, "rue", TRUE);
+            case 'w' -> keyword(1, "hile", WHILE);
+            default -> null;
+        };
+    }
+
+    private TokenType keyword(int skip, String rest, TokenType type) {
+        if (current - start != skip + rest.length()) return null;
+        for (int i = 0; i < rest.length(); i++) {
+            if (chars[start + skip + i - offset] != rest.charAt(i)) return null;
+        }
+        return type;
     }
 
     private void traverseString() {
@@ -212,11 +365,11 @@ public class Scanner {
     private void string() {
         traverseString();
         if (isAtEnd()) {
-            Lox.error(line, "Unterminated string.");
+            error("Unterminated string.");
             return;
         }
         advance(); /* consume the closing speech mark */
-        String value = source.substring(start + 1, current - 1); /* remove the speech marks */
+        String value = text(start + 1, current - start - 2); /* remove the speech marks */
         addToken(STRING, value);
     }
 
@@ -234,9 +387,24 @@ public class Scanner {
         if (peek() == '.' && isDigit(peekNext())) {
             advance(); /* consume the decimal point */
             traverseNumber();
+            addToken(NUMBER, Double.parseDouble(text(start, current - start)));
+        } else {
+            addToken(NUMBER, integer());
+        }
+    }
+
+    /* a whole number's value, read from its digits in place; a long holds
+     * any 18 of them exactly, and converting it rounds just as parsing
+     * the text as a double would */
+    private double integer() {
+        if (current - start > 18) {
+            return Double.parseDouble(text(start, current - start));
+        }
+        long value = 0;
+        for (int i = start; i < current; i++) {
+            value = value * 10 + (chars[i - offset] - '0');
         }
-        double value = Double.parseDouble(source.substring(start, current));
-        addToken(NUMBER, value);
+        return value;
     }
 
     private boolean isEndOfComment(final char c) {
@@ -247,6 +415,6 @@ public class Scanner {
     }
 
     private void comment() {
-        while (!isEndOfComment(peek())) advance();
+        while (!isEndOfComment(peek()) && !isAtEnd()) advance();
     }
 }
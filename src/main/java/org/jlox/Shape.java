@@ -0,0 +1,43 @@
+package org.jlox;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/* The layout of an instance: which field lives at which index of its
+ * Object[]. Shapes form a transition tree rooted at each class, so all
+ * instances that gain the same fields in the same order share one. */
+public final class Shape {
+    private final Shape parent;
+    private final Symbol name;
+    private final int size;
+    private final Map<Symbol, Shape> transitions = new HashMap<>();
+
+    Shape() {
+        this.parent = null;
+        this.name = null;
+        this.size = 0;
+    }
+
+    private Shape(final Shape parent, final Symbol name) {
+        this.parent = parent;
+        this.name = name;
+        this.size = parent.size + 1;
+    }
+
+    /* the index of a field, or -1 if instances of this shape lack it */
+    public int indexOf(Symbol field) {
+        for (Shape shape = this; shape.parent != null; shape = shape.parent) {
+            if (shape.name == field) return shape.size - 1;
+        }
+        return -1;
+    }
+
+    /* the shape an instance moves to when it gains a field */
+    Shape with(Symbol field) {
+        return transitions.computeIfAbsent(field, f -> new Shape(this, f));
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
@@ -19,6 +19,8 @@ public abstract class Stmt {
 
     public static class Block extends Stmt {
         private final List<Stmt> statements;
+        private int size;
+        private int[] released;
 
         Block(List<Stmt> statements) {
             this.statements = statements;
@@ -28,6 +30,22 @@ public abstract class Stmt {
             return statements;
         }
 
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public int[] getReleased() {
+            return released;
+        }
+
+        public void setReleased(int[] released) {
+            this.released = released;
+        }
+
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitBlockStmt(this);
@@ -38,6 +56,7 @@ public abstract class Stmt {
         private final Token name;
         private final Expr.Variable superclass;
         private final List<Stmt.Function> methods;
+        private int slot = Environment.GLOBAL;
 
         Class(Token name, Expr.Variable superclass, List<Stmt.Function> methods) {
             this.name = name;
@@ -57,6 +76,14 @@ public abstract class Stmt {
             return methods;
         }
 
+        public int getSlot() {
+            return slot;
+        }
+
+        public void setSlot(int slot) {
+            this.slot = slot;
+        }
+
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitClassStmt(this);
@@ -84,6 +111,11 @@ public abstract class Stmt {
         private final Token name;
         private final List<Token> params;
         private final List<Stmt> body;
+        private int slot = Environment.GLOBAL;
+        private int size;
+        private int[] released;
+        private int calls;
+        private LoxFunction.Body compiled;
 
         Function(Token name, List<Token> params, List<Stmt> body) {
             this.name = name;
@@ -103,6 +135,46 @@ public abstract class Stmt {
             return body;
         }
 
+        public int getSlot() {
+            return slot;
+        }
+
+        public void setSlot(int slot) {
+            this.slot = slot;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public int[] getReleased() {
+            return released;
+        }
+
+        public void setReleased(int[] released) {
+            this.released = released;
+        }
+
+        public int getCalls() {
+            return calls;
+        }
+
+        public void setCalls(int calls) {
+            this.calls = calls;
+        }
+
+        public LoxFunction.Body getCompiled() {
+            return compiled;
+        }
+
+        public void setCompiled(LoxFunction.Body compiled) {
+            this.compiled = compiled;
+        }
+
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitFunctionStmt(this);
@@ -158,6 +230,7 @@ public abstract class Stmt {
     public static class Return extends Stmt {
         private final Token keyword;
         private final Expr value;
+        private boolean tail;
 
         Return(Token keyword, Expr value) {
             this.keyword = keyword;
@@ -172,6 +245,14 @@ public abstract class Stmt {
             return value;
         }
 
+        public boolean getTail() {
+            return tail;
+        }
+
+        public void setTail(boolean tail) {
+            this.tail = tail;
+        }
+
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitReturnStmt(this);
@@ -181,6 +262,7 @@ public abstract class Stmt {
     public static class Var extends Stmt {
         private final Token name;
         private final Expr initializer;
+        private int slot = Environment.GLOBAL;
 
         Var(Token name, Expr initializer) {
             this.name = name;
@@ -195,6 +277,14 @@ public abstract class Stmt {
             return initializer;
         }
 
+        public int getSlot() {
+            return slot;
+        }
+
+        public void setSlot(int slot) {
+            this.slot = slot;
+        }
+
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitVarStmt(this);
@@ -204,6 +294,7 @@ public abstract class Stmt {
     public static class While extends Stmt {
         private final Expr condition;
         private final Stmt body;
+        private int backEdges;
 
         While(Expr condition, Stmt body) {
             this.condition = condition;
@@ -218,6 +309,14 @@ public abstract class Stmt {
             return body;
         }
 
+        public int getBackEdges() {
+            return backEdges;
+        }
+
+        public void setBackEdges(int backEdges) {
+            this.backEdges = backEdges;
+        }
+
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitWhileStmt(this);
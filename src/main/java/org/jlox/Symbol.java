@@ -0,0 +1,180 @@
+package org.jlox;
+
+/* An identifier, interned: the scanner hands out one Symbol per distinct
+ * name, so runtime tables can compare names by identity and hash them by
+ * their id instead of walking their characters. Names are never removed,
+ * since any tree or runtime table may hold a symbol for as long as the
+ * process runs, so the table grows with the distinct names of everything
+ * scanned: a generated source with many may keep a good deal of memory. */
+public final class Symbol {
+    private static Symbol[] table = new Symbol[256];
+    private static int count;
+
+    private final int id;
+    private final String name;
+    private final int hash;
+    /* the next symbol in the same bucket */
+    private Symbol next;
+
+    private Symbol(int id, String name, int hash, Symbol next) {
+        this.id = id;
+        this.name = name;
+        this.hash = hash;
+        this.next = next;
+    }
+
+    public static Symbol intern(String name) {
+        return intern(name.toCharArray(), 0, name.length());
+    }
+
+    /* the symbol for chars[start, end), looked up without copying the
+     * characters out unless the name is new */
+    public static synchronized Symbol intern(char[] chars, int start, int end) {
+        int hash = hash(chars, start, end);
+        int length = end - start;
+        for (Symbol symbol = table[hash & (table.length - 1)]; symbol != null; symbol = symbol.next) {
+            if (symbol.hash == hash && spells(symbol.name, chars, start, length)) {
+                return symbol;
+            }
+        }
+        return add(new String(chars, start, length), hash);
+    }
+
+    /* the caller holds the lock */
+    private static Symbol intern(String name, int hash) {
+        for (Symbol symbol = table[hash & (table.length - 1)]; symbol != null; symbol = symbol.next) {
+            if (symbol.hash == hash && symbol.name.equals(name)) return symbol;
+        }
+        return add(name, hash);
+    }
+
+    private static Symbol add(String name, int hash) {
+        if (count * 2 >= table.length) rehash();
+        int bucket = hash & (table.length - 1);
+        Symbol symbol = new Symbol(count++, name, hash, table[bucket]);
+        table[bucket] = symbol;
+        return symbol;
+    }
+
+    private static int hash(char[] chars, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return hash;
+    }
+
+    private static boolean spells(String name, char[] chars, int start, int length) {
+        if (name.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[start + i]) return false;
+        }
+        return true;
+    }
+
+    private static void rehash() {
+        Symbol[] old = table;
+        table = new Symbol[old.length * 2];
+        for (Symbol chain : old) {
+            Symbol symbol = chain;
+            while (symbol != null) {
+                Symbol following = symbol.next;
+                int bucket = symbol.hash & (table.length - 1);
+                symbol.next = table[bucket];
+                table[bucket] = symbol;
+                symbol = following;
+            }
+        }
+    }
+
+    /* Interns names for a single thread without taking the lock, as each
+     * task of a parallel scan does for its chunk, so that the tasks do not
+     * contend for it per identifier. A name is first entered as a Pending
+     * of the local table; resolve() then interns every pending name at
+     * once and records its symbol in it. */
+    static final class Local {
+        private Pending[] table = new Pending[256];
+        private int count;
+
+        Pending intern(char[] chars, int start, int end) {
+            int hash = hash(chars, start, end);
+            int length = end - start;
+            int bucket = hash & (table.length - 1);
+            for (Pending pending = table[bucket]; pending != null; pending = pending.next) {
+                if (pending.hash == hash && spells(pending.name, chars, start, length)) {
+                    return pending;
+                }
+            }
+            if (count * 2 >= table.length) {
+                rehash();
+                bucket = hash & (table.length - 1);
+            }
+            Pending pending = new Pending(new String(chars, start, length), hash, table[bucket]);
+            table[bucket] = pending;
+            count++;
+            return pending;
+        }
+
+        private void rehash() {
+            Pending[] old = table;
+            table = new Pending[old.length * 2];
+            for (Pending chain : old) {
+                Pending pending = chain;
+                while (pending != null) {
+                    Pending following = pending.next;
+                    int bucket = pending.hash & (table.length - 1);
+                    pending.next = table[bucket];
+                    table[bucket] = pending;
+                    pending = following;
+                }
+            }
+        }
+
+        void resolve() {
+            synchronized (Symbol.class) {
+                for (Pending chain : table) {
+                    for (Pending pending = chain; pending != null; pending = pending.next) {
+                        pending.symbol = Symbol.intern(pending.name, pending.hash);
+                    }
+                }
+            }
+        }
+    }
+
+    static final class Pending {
+        private final String name;
+        private final int hash;
+        private Pending next;
+        private Symbol symbol;
+
+        private Pending(String name, int hash, Pending next) {
+            this.name = name;
+            this.hash = hash;
+            this.next = next;
+        }
+
+        Symbol getSymbol() {
+            return symbol;
+        }
+    }
+
+    /* dense, from 0, in the order names were first seen */
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /* identity is equality, as no two symbols share a name */
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -1,6 +1,9 @@
 package org.jlox;
 
-public record Token(TokenType type, String lexeme, Object literal, int line) {
+/* symbol is the interned name of an identifier or keyword, null for
+ * any other token */
+public record Token(TokenType type, String lexeme, Object literal, int line,
+                    Symbol symbol) {
     public String toString() {
         return type + " " + lexeme + " " + literal;
     }
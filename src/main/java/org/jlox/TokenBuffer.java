@@ -0,0 +1,167 @@
+package org.jlox;
+
+import java.util.Arrays;
+
+/* The tokens of a source, kept as parallel arrays rather than one object
+ * each: a token is its type, where its text starts, how long the text is
+ * and its line, plus, for the few that have one, a literal value or the
+ * symbol of an identifier. A Token is only built for the tokens the
+ * parser keeps in the tree, and its lexeme only copied out of the source
+ * when no fixed spelling or symbol name can stand in for it.
+ *
+ * Tokens are numbered from the start of the source, but the buffer only
+ * holds a window of them: the scanner adds tokens as the parser asks for
+ * them, and the parser says which ones it no longer needs. */
+public final class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int CAPACITY = 256;
+
+    private final Scanner scanner;
+    private int[] types = new int[CAPACITY];
+    private int[] starts = new int[CAPACITY];
+    private int[] lengths = new int[CAPACITY];
+    private int[] lines = new int[CAPACITY];
+    private Object[] literals = new Object[CAPACITY];
+    /* the number of the token at index 0 of the arrays */
+    private int first = 0;
+    private int size = 0;
+    /* tokens numbered below this one may be dropped */
+    private int held = 0;
+
+    TokenBuffer(Scanner scanner) {
+        this.scanner = scanner;
+    }
+
+    void add(TokenType type, int start, int length, int line, Object literal) {
+        if (size == types.length) makeRoom(1);
+        types[size] = type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        literals[size] = literal;
+        size++;
+    }
+
+    /* drops the tokens no longer needed, growing the arrays only if that
+     * frees less than half of them or too little for the tokens to come */
+    private void makeRoom(int needed) {
+        int dropped = held - first;
+        int kept = size - dropped;
+        int capacity = types.length;
+        if (kept >= capacity / 2 || capacity - kept < needed) {
+            capacity = Math.max(2 * capacity, kept + needed);
+        }
+        types = shift(types, dropped, kept, capacity);
+        starts = shift(starts, dropped, kept, capacity);
+        lengths = shift(lengths, dropped, kept, capacity);
+        lines = shift(lines, dropped, kept, capacity);
+        Object[] moved = capacity == literals.length ? literals : new Object[capacity];
+        System.arraycopy(literals, dropped, moved, 0, kept);
+        Arrays.fill(moved, kept, size, null);
+        literals = moved;
+        first = held;
+        size = kept;
+    }
+
+    private static int[] shift(int[] values, int dropped, int kept, int capacity) {
+        int[] moved = capacity == values.length ? values : new int[capacity];
+        System.arraycopy(values, dropped, moved, 0, kept);
+        return moved;
+    }
+
+    /* copies in the tokens of another buffer from index on, moving them
+     * down shift lines */
+    void append(TokenBuffer other, int index, int shift) {
+        int from = index - other.first;
+        int count = other.size - from;
+        if (types.length - size < count) makeRoom(count);
+        System.arraycopy(other.types, from, types, size, count);
+        System.arraycopy(other.starts, from, starts, size, count);
+        System.arraycopy(other.lengths, from, lengths, size, count);
+        System.arraycopy(other.literals, from, literals, size, count);
+        for (int i = 0; i < count; i++) {
+            lines[size + i] = other.lines[from + i] + shift;
+        }
+        size += count;
+    }
+
+    /* swaps the pending names a speculative scan left in the literals
+     * for their symbols */
+    void resolve() {
+        for (int i = 0; i < size; i++) {
+            if (literals[i] instanceof Symbol.Pending pending) literals[i] = pending.getSymbol();
+        }
+    }
+
+    /* the number of the first token held that starts at or after
+     * position, or end() if none does */
+    int indexFrom(int position) {
+        int low = held - first;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] < position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return first + low;
+    }
+
+    /* each accessor finds the token before reading an array, as finding
+     * it may scan more and so replace the arrays */
+    int start(int index) {
+        int i = at(index);
+        return starts[i];
+    }
+
+    /* the number the next token added will get */
+    int end() {
+        return first + size;
+    }
+
+    /* where the text of the oldest token still held starts */
+    int heldFrom() {
+        return held < first + size ? starts[held - first] : Integer.MAX_VALUE;
+    }
+
+    /* lets the buffer drop every token numbered below index */
+    public void release(int index) {
+        held = Math.max(held, index);
+    }
+
+    private int at(int index) {
+        while (index >= first + size) {
+            scanner.scanNext();
+        }
+        return index - first;
+    }
+
+    public TokenType type(int index) {
+        int i = at(index);
+        return TYPES[types[i]];
+    }
+
+    public int line(int index) {
+        int i = at(index);
+        return lines[i];
+    }
+
+    public Object literal(int index) {
+        int i = at(index);
+        return types[i] == TokenType.IDENTIFIER.ordinal() ? null : literals[i];
+    }
+
+    public Token get(int index) {
+        int i = at(index);
+        TokenType type = TYPES[types[i]];
+        if (type == TokenType.IDENTIFIER) {
+            Symbol symbol = (Symbol) literals[i];
+            return new Token(type, symbol.getName(), null, lines[i], symbol);
+        }
+        String lexeme = type.getLexeme();
+        if (lexeme == null) lexeme = scanner.text(starts[i], lengths[i]);
+        return new Token(type, lexeme, literals[i], lines[i], type.getSymbol());
+    }
+}
@@ -1,20 +1,47 @@
 package org.jlox;
 
+/* lexeme is the text every token of the type is spelt with, null for
+ * the types whose text varies; keywords also carry it as a symbol */
 public enum TokenType {
     /* single character tokens */
-    LEFT_PAREN, RIGHT_PAREN, LEFT_BRACE, RIGHT_BRACE,
-    COMMA, DOT, MINUS, PLUS, SEMICOLON, SLASH, STAR,
+    LEFT_PAREN("("), RIGHT_PAREN(")"), LEFT_BRACE("{"), RIGHT_BRACE("}"),
+    COMMA(","), DOT("."), MINUS("-"), PLUS("+"), SEMICOLON(";"),
+    SLASH("/"), STAR("*"),
 
     /* one or two character tokens */
-    BANG, BANG_EQUAL, EQUAL, EQUAL_EQUAL, GREATER,
-    GREATER_EQUAL, LESS, LESS_EQUAL,
+    BANG("!"), BANG_EQUAL("!="), EQUAL("="), EQUAL_EQUAL("=="),
+    GREATER(">"), GREATER_EQUAL(">="), LESS("<"), LESS_EQUAL("<="),
 
     /* literals */
-    IDENTIFIER, STRING, NUMBER,
+    IDENTIFIER(null), STRING(null), NUMBER(null),
 
     /* keywords */
-    AND, CLASS, ELSE, FALSE, FUNC, FOR, IF, NIL, OR,
-    PRINT, RETURN, SUPER, SELF, TRUE, LET, WHILE,
+    AND("and", true), CLASS("class", true), ELSE("else", true),
+    FALSE("false", true), FUNC("func", true), FOR("for", true),
+    IF("if", true), NIL("nil", true), OR("or", true),
+    PRINT("print", true), RETURN("return", true), SUPER("super", true),
+    SELF("self", true), TRUE("true", true), LET("let", true),
+    WHILE("while", true),
 
-    EOF
+    EOF("");
+
+    private final String lexeme;
+    private final Symbol symbol;
+
+    TokenType(String lexeme) {
+        this(lexeme, false);
+    }
+
+    TokenType(String lexeme, boolean keyword) {
+        this.lexeme = lexeme;
+        this.symbol = keyword ? Symbol.intern(lexeme) : null;
+    }
+
+    public String getLexeme() {
+        return lexeme;
+    }
+
+    public Symbol getSymbol() {
+        return symbol;
+    }
 }
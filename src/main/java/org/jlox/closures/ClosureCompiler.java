@@ -0,0 +1,715 @@
+package org.jlox.closures;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jlox.Environment;
+import org.jlox.Expr;
+import org.jlox.GlobalCell;
+import org.jlox.InlineCache;
+import org.jlox.Interpreter;
+import org.jlox.LoxCallable;
+import org.jlox.LoxClass;
+import org.jlox.LoxFunction;
+import org.jlox.LoxInstance;
+import org.jlox.Return;
+import org.jlox.Rope;
+import org.jlox.RuntimeError;
+import org.jlox.Stmt;
+import org.jlox.Symbol;
+import org.jlox.Token;
+import org.jlox.TokenType;
+
+import static org.jlox.ErrorMessage.DIVIDE_BY_ZERO;
+import static org.jlox.ErrorMessage.INVALID_CALL;
+import static org.jlox.ErrorMessage.INVALID_CALL_PARAMS;
+import static org.jlox.ErrorMessage.MATCH_OPERANDS;
+import static org.jlox.ErrorMessage.NOT_INSTANCE;
+import static org.jlox.ErrorMessage.NOT_INSTANCE_FIELDS;
+import static org.jlox.ErrorMessage.OPERAND_NUMBER;
+import static org.jlox.ErrorMessage.OPERAND_NUMBERS;
+import static org.jlox.ErrorMessage.SUPER_MUST_BE_CLASS;
+import static org.jlox.LoxConstants.INIT;
+
+/* Walks the resolved syntax tree once and links it into closures. Every
+ * decision the tree-walker makes per evaluation - which operator, global
+ * or local, which slot at which depth - is taken here instead, so the
+ * closures only capture what is left to do at run time. */
+final class ClosureCompiler implements Expr.Visitor<Eval>, Stmt.Visitor<Exec> {
+    private final Interpreter interpreter;
+    private final Environment globals;
+    /* leaves the bodies of nested functions to the interpreter's tiering */
+    private final boolean tiered;
+    /* when set, arithmetic and comparisons assume numbers */
+    private final Speculation speculation;
+
+    ClosureCompiler(Interpreter interpreter) {
+        this(interpreter, false, null);
+    }
+
+    ClosureCompiler(Interpreter interpreter, boolean tiered, Speculation speculation) {
+        this.interpreter = interpreter;
+        this.globals = interpreter.getGlobals();
+        this.tiered = tiered;
+        this.speculation = speculation;
+    }
+
+    Exec[] compile(List<Stmt> statements) {
+        Exec[] compiled = new Exec[statements.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = compile(statements.get(i));
+        }
+        return compiled;
+    }
+
+    Exec compile(Stmt stmt) {
+        return stmt.accept(this);
+    }
+
+    Eval compile(Expr expr) {
+        return expr.accept(this);
+    }
+
+    /* compiled once per declaration and shared by all its closures */
+    LoxFunction.Body body(Stmt.Function declaration) {
+        Exec[] statements = compile(declaration.getBody());
+        return frame -> {
+            for (Exec statement : statements) {
+                statement.exec(frame);
+            }
+        };
+    }
+
+    /* null leaves a nested function to be tiered up on its own */
+    private LoxFunction.Body nestedBody(Stmt.Function declaration) {
+        return tiered ? null : body(declaration);
+    }
+
+    private Exec definition(Token name, int slot, Eval value) {
+        if (slot == Environment.GLOBAL) {
+            GlobalCell cell = globals.cell(name.symbol());
+            return frame -> cell.define(value.eval(frame));
+        }
+        return frame -> frame.define(slot, value.eval(frame));
+    }
+
+    private void define(Environment frame, Token name, int slot, Object value) {
+        if (slot == Environment.GLOBAL) {
+            globals.define(name.symbol(), value);
+        } else {
+            frame.define(slot, value);
+        }
+    }
+
+    @Override
+    public Eval visitAssignExpr(Expr.Assign expr) {
+        Eval value = compile(expr.getValue());
+        Token name = expr.getName();
+        int depth = expr.getDepth();
+        int slot = expr.getSlot();
+        if (depth == Environment.GLOBAL) {
+            GlobalCell cell = globals.cell(name.symbol());
+            return frame -> {
+                Object result = value.eval(frame);
+                cell.assign(name, result);
+                return result;
+            };
+        }
+        return frame -> {
+            Object result = value.eval(frame);
+            frame.assignAt(depth, slot, result);
+            return result;
+        };
+    }
+
+    @Override
+    public Eval visitBinaryExpr(Expr.Binary expr) {
+        if (speculation != null && isSpeculative(expr)) return speculate(expr);
+        Eval left = compile(expr.getLeft());
+        Eval right = compile(expr.getRight());
+        Token operator = expr.getOperator();
+        return switch (operator.type()) {
+            case PLUS -> frame -> {
+                Object l = left.eval(frame);
+                Object r = right.eval(frame);
+                if (l instanceof Double a && r instanceof Double b) return a + b;
+                if ((l instanceof CharSequence || l instanceof Double) &&
+                    (r instanceof CharSequence || r instanceof Double)) {
+                    return Rope.concat(l, r);
+                }
+                throw new RuntimeError(operator, MATCH_OPERANDS.getMsg());
+            };
+            case MINUS -> frame -> {
+                Object l = left.eval(frame);
+                Object r = right.eval(frame);
+                checkNumberOperands(operator, l, r);
+                return (double) l - (double) r;
+            };
+            case STAR -> frame -> {
+                Object l = left.eval(frame);
+                Object r = right.eval(frame);
+                checkNumberOperands(operator, l, r);
+                return (double) l * (double) r;
+            };
+            case SLASH -> frame -> {
+                Object l = left.eval(frame);
+                Object r = right.eval(frame);
+                checkNumberOperands(operator, l, r);
+                if ((double) l == 0 || (double) r == 0) {
+                    throw new RuntimeError(operator, DIVIDE_BY_ZERO.getMsg());
+                }
+                return (double) l / (double) r;
+            };
+            case GREATER -> frame -> {
+                Object l = left.eval(frame);
+                Object r = right.eval(frame);
+                checkNumberOperands(operator, l, r);
+                return (double) l > (double) r;
+            };
+            case GREATER_EQUAL -> frame -> {
+                Object l = left.eval(frame);
+                Object r = right.eval(frame);
+                checkNumberOperands(operator, l, r);
+                return (double) l >= (double) r;
+            };
+            case LESS -> frame -> {
+                Object l = left.eval(frame);
+                Object r = right.eval(frame);
+                checkNumberOperands(operator, l, r);
+                return (double) l < (double) r;
+            };
+            case LESS_EQUAL -> frame -> {
+                Object l = left.eval(frame);
+                Object r = right.eval(frame);
+                checkNumberOperands(operator, l, r);
+                return (double) l <= (double) r;
+            };
+            case EQUAL_EQUAL -> frame ->
+                    Interpreter.isEqual(left.eval(frame), right.eval(frame));
+            case BANG_EQUAL -> frame ->
+                    !Interpreter.isEqual(left.eval(frame), right.eval(frame));
+            default -> throw new IllegalStateException(
+                    "Unexpected binary operator " + operator.type());
+        };
+    }
+
+    /* Arithmetic or a comparison whose operands are numbers, variables
+     * and arithmetic on those is compiled to work on unboxed doubles, with
+     * only the variables checked. A variable that is not a number fails
+     * the speculation, and since reading variables has no side effects the
+     * expression is then simply evaluated again the generic way. */
+    private static boolean isSpeculative(Expr.Binary expr) {
+        return switch (expr.getOperator().type()) {
+            case PLUS, MINUS, STAR, SLASH, GREATER, GREATER_EQUAL, LESS, LESS_EQUAL ->
+                    isUnboxable(expr.getLeft()) && isUnboxable(expr.getRight());
+            default -> false;
+        };
+    }
+
+    private static boolean isUnboxable(Expr expr) {
+        if (expr instanceof Expr.Literal literal) return literal.getValue() instanceof Double;
+        if (expr instanceof Expr.Variable) return true;
+        if (expr instanceof Expr.Grouping grouping) return isUnboxable(grouping.getExpression());
+        if (expr instanceof Expr.Unary unary) {
+            return unary.getOperator().type() == TokenType.MINUS && isUnboxable(unary.getRight());
+        }
+        if (expr instanceof Expr.Binary binary) {
+            return switch (binary.getOperator().type()) {
+                case PLUS, MINUS, STAR, SLASH ->
+                        isUnboxable(binary.getLeft()) && isUnboxable(binary.getRight());
+                default -> false;
+            };
+        }
+        return false;
+    }
+
+    private Eval speculate(Expr.Binary expr) {
+        Eval generic = new ClosureCompiler(interpreter, tiered, null).compile(expr);
+        EvalDouble left = unboxed(expr.getLeft());
+        EvalDouble right = unboxed(expr.getRight());
+        return switch (expr.getOperator().type()) {
+            case GREATER -> frame -> {
+                try {
+                    return left.eval(frame) > right.eval(frame);
+                } catch (Speculation.Failed failed) {
+                    return deoptimise(generic, frame);
+                }
+            };
+            case GREATER_EQUAL -> frame -> {
+                try {
+                    return left.eval(frame) >= right.eval(frame);
+                } catch (Speculation.Failed failed) {
+                    return deoptimise(generic, frame);
+                }
+            };
+            case LESS -> frame -> {
+                try {
+                    return left.eval(frame) < right.eval(frame);
+                } catch (Speculation.Failed failed) {
+                    return deoptimise(generic, frame);
+                }
+            };
+            case LESS_EQUAL -> frame -> {
+                try {
+                    return left.eval(frame) <= right.eval(frame);
+                } catch (Speculation.Failed failed) {
+                    return deoptimise(generic, frame);
+                }
+            };
+            default -> {
+                EvalDouble value = unboxed(expr);
+                yield frame -> {
+                    try {
+                        return value.eval(frame);
+                    } catch (Speculation.Failed failed) {
+                        return deoptimise(generic, frame);
+                    }
+                };
+            }
+        };
+    }
+
+    private Object deoptimise(Eval generic, Environment frame) {
+        speculation.fail();
+        return generic.eval(frame);
+    }
+
+    private EvalDouble unboxed(Expr expr) {
+        if (expr instanceof Expr.Literal literal) {
+            double value = (Double) literal.getValue();
+            return frame -> value;
+        }
+        if (expr instanceof Expr.Grouping grouping) return unboxed(grouping.getExpression());
+        if (expr instanceof Expr.Unary unary) {
+            EvalDouble right = unboxed(unary.getRight());
+            return frame -> -right.eval(frame);
+        }
+        if (expr instanceof Expr.Binary binary) {
+            EvalDouble left = unboxed(binary.getLeft());
+            EvalDouble right = unboxed(binary.getRight());
+            Token operator = binary.getOperator();
+            return switch (operator.type()) {
+                case PLUS -> frame -> left.eval(frame) + right.eval(frame);
+                case MINUS -> frame -> left.eval(frame) - right.eval(frame);
+                case STAR -> frame -> left.eval(frame) * right.eval(frame);
+                default -> frame -> {
+                    double l = left.eval(frame);
+                    double r = right.eval(frame);
+                    if (l == 0 || r == 0) {
+                        throw new RuntimeError(operator, DIVIDE_BY_ZERO.getMsg());
+                    }
+                    return l / r;
+                };
+            };
+        }
+        Eval variable = compile(expr);
+        return frame -> {
+            if (variable.eval(frame) instanceof Double value) return value;
+            throw Speculation.Failed.FAILED;
+        };
+    }
+
+    private static void checkNumberOperands(Token operator, Object l, Object r) {
+        if (l instanceof Double && r instanceof Double) return;
+        throw new RuntimeError(operator, OPERAND_NUMBERS.getMsg());
+    }
+
+    @Override
+    public Eval visitCallExpr(Expr.Call expr) {
+        return call(expr, false);
+    }
+
+    /* in tail position a call to a Lox function is not made here but
+     * thrown back to the caller's LoxFunction as a TailCall to run */
+    private Eval call(Expr.Call expr, boolean tail) {
+        if (expr.getCallee() instanceof Expr.Get get) return invoke(expr, get, tail);
+        Eval callee = compile(expr.getCallee());
+        Eval[] args = compileArgs(expr);
+        Token paren = expr.getParen();
+        InlineCache cache = expr.getCache();
+        if (!tail && args.length <= 3) return call(callee, args, paren, cache);
+        /* spelled out here rather than calling call(), which measurably
+         * slows recursive code */
+        return frame -> {
+            Object function = callee.eval(frame);
+            Object[] values = new Object[args.length];
+            for (int i = 0; i < args.length; i++) {
+                values[i] = args[i].eval(frame);
+            }
+            if (!(function instanceof LoxCallable callable)) {
+                throw new RuntimeError(paren, INVALID_CALL.getMsg());
+            }
+            int arity = callable instanceof LoxClass clazz
+                    ? clazz.arity(cache) : callable.arity();
+            if (values.length != arity) {
+                throw new RuntimeError(paren,
+                        String.format(INVALID_CALL_PARAMS.getMsg(),
+                                arity, values.length));
+            }
+            if (callable instanceof LoxClass clazz) {
+                return clazz.call(interpreter, values, cache);
+            }
+            if (tail && callable instanceof LoxFunction lox) return lox.tailCall(values);
+            return callable.call(interpreter, values);
+        };
+    }
+
+    /* the common arities are passed to the callee's fixed-arity entry
+     * point without gathering an array */
+    private Eval call(Eval callee, Eval[] args, Token paren, InlineCache cache) {
+        return switch (args.length) {
+            case 0 -> frame -> {
+                Object function = callee.eval(frame);
+                if (LoxCallable.isDirect(function, 0)) {
+                    return ((LoxCallable) function).call0(interpreter);
+                }
+                return call(function, new Object[0], paren, cache, false);
+            };
+            case 1 -> {
+                Eval first = args[0];
+                yield frame -> {
+                    Object function = callee.eval(frame);
+                    Object a = first.eval(frame);
+                    if (LoxCallable.isDirect(function, 1)) {
+                        return ((LoxCallable) function).call1(interpreter, a);
+                    }
+                    return call(function, new Object[] {a}, paren, cache, false);
+                };
+            }
+            case 2 -> {
+                Eval first = args[0];
+                Eval second = args[1];
+                yield frame -> {
+                    Object function = callee.eval(frame);
+                    Object a = first.eval(frame);
+                    Object b = second.eval(frame);
+                    if (LoxCallable.isDirect(function, 2)) {
+                        return ((LoxCallable) function).call2(interpreter, a, b);
+                    }
+                    return call(function, new Object[] {a, b}, paren, cache, false);
+                };
+            }
+            default -> {
+                Eval first = args[0];
+                Eval second = args[1];
+                Eval third = args[2];
+                yield frame -> {
+                    Object function = callee.eval(frame);
+                    Object a = first.eval(frame);
+                    Object b = second.eval(frame);
+                    Object c = third.eval(frame);
+                    if (LoxCallable.isDirect(function, 3)) {
+                        return ((LoxCallable) function).call3(interpreter, a, b, c);
+                    }
+                    return call(function, new Object[] {a, b, c}, paren, cache, false);
+                };
+            }
+        };
+    }
+
+    /* obj.method(args) calls the method straight on the instance, without
+     * the bound method a separate property read would allocate */
+    private Eval invoke(Expr.Call expr, Expr.Get get, boolean tail) {
+        Eval object = compile(get.getObject());
+        Token name = get.getName();
+        InlineCache property = get.getCache();
+        Eval[] args = compileArgs(expr);
+        Token paren = expr.getParen();
+        InlineCache cache = expr.getCache();
+        return frame -> {
+            if (!(object.eval(frame) instanceof LoxInstance instance)) {
+                throw new RuntimeError(name, NOT_INSTANCE.getMsg());
+            }
+            LoxFunction method = instance.getMethod(name, property);
+            if (method == null) {
+                Object callee = instance.get(name, property);
+                return call(callee, evaluate(args, frame), paren, cache, tail);
+            }
+            Object[] values = evaluate(args, frame);
+            if (values.length != method.arity()) {
+                throw new RuntimeError(paren,
+                        String.format(INVALID_CALL_PARAMS.getMsg(),
+                                method.arity(), values.length));
+            }
+            if (tail) return method.tailInvoke(instance, values);
+            return method.invoke(interpreter, instance, values);
+        };
+    }
+
+    private Eval[] compileArgs(Expr.Call expr) {
+        Eval[] args = new Eval[expr.getArgs().size()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = compile(expr.getArgs().get(i));
+        }
+        return args;
+    }
+
+    private static Object[] evaluate(Eval[] args, Environment frame) {
+        Object[] values = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            values[i] = args[i].eval(frame);
+        }
+        return values;
+    }
+
+    private Object call(Object function, Object[] values, Token paren,
+                        InlineCache cache, boolean tail) {
+        if (!(function instanceof LoxCallable callable)) {
+            throw new RuntimeError(paren, INVALID_CALL.getMsg());
+        }
+        int arity = callable instanceof LoxClass clazz
+                ? clazz.arity(cache) : callable.arity();
+        if (values.length != arity) {
+            throw new RuntimeError(paren,
+                    String.format(INVALID_CALL_PARAMS.getMsg(),
+                            arity, values.length));
+        }
+        if (callable instanceof LoxClass clazz) {
+            return clazz.call(interpreter, values, cache);
+        }
+        if (tail && callable instanceof LoxFunction lox) return lox.tailCall(values);
+        return callable.call(interpreter, values);
+    }
+
+    @Override
+    public Eval visitGroupingExpr(Expr.Grouping expr) {
+        return compile(expr.getExpression());
+    }
+
+    @Override
+    public Eval visitGetExpr(Expr.Get expr) {
+        Eval object = compile(expr.getObject());
+        Token name = expr.getName();
+        InlineCache cache = expr.getCache();
+        return frame -> {
+            if (object.eval(frame) instanceof LoxInstance instance) {
+                return instance.get(name, cache);
+            }
+            throw new RuntimeError(name, NOT_INSTANCE.getMsg());
+        };
+    }
+
+    @Override
+    public Eval visitLiteralExpr(Expr.Literal expr) {
+        Object value = expr.getValue();
+        return frame -> value;
+    }
+
+    @Override
+    public Eval visitLogicalExpr(Expr.Logical expr) {
+        Eval left = compile(expr.getLeft());
+        Eval right = compile(expr.getRight());
+        return switch (expr.getOperator().type()) {
+            case OR -> frame -> {
+                Object value = left.eval(frame);
+                return Interpreter.isTruthy(value) ? value : right.eval(frame);
+            };
+            default -> frame -> {
+                Object value = left.eval(frame);
+                return Interpreter.isTruthy(value) ? right.eval(frame) : value;
+            };
+        };
+    }
+
+    @Override
+    public Eval visitSelfExpr(Expr.Self expr) {
+        int depth = expr.getDepth();
+        int slot = expr.getSlot();
+        return frame -> frame.getAt(depth, slot);
+    }
+
+    @Override
+    public Eval visitSetExpr(Expr.Set expr) {
+        Eval object = compile(expr.getObject());
+        Eval value = compile(expr.getValue());
+        Token name = expr.getName();
+        InlineCache cache = expr.getCache();
+        return frame -> {
+            if (!(object.eval(frame) instanceof LoxInstance instance)) {
+                throw new RuntimeError(name, NOT_INSTANCE_FIELDS.getMsg());
+            }
+            instance.set(name, value.eval(frame), cache);
+            return null;
+        };
+    }
+
+    @Override
+    public Eval visitSuperExpr(Expr.Super expr) {
+        int depth = expr.getDepth();
+        Symbol method = expr.getMethod().symbol();
+        return frame -> {
+            LoxClass superclass = (LoxClass) frame.getAt(depth, 0);
+            LoxInstance object = (LoxInstance) frame.getAt(depth - 1, 0);
+            return superclass.findMethod(method).bind(object);
+        };
+    }
+
+    @Override
+    public Eval visitUnaryExpr(Expr.Unary expr) {
+        Eval right = compile(expr.getRight());
+        Token operator = expr.getOperator();
+        return switch (operator.type()) {
+            case MINUS -> frame -> {
+                if (right.eval(frame) instanceof Double value) return -value;
+                throw new RuntimeError(operator, OPERAND_NUMBER.getMsg());
+            };
+            case BANG -> frame -> !Interpreter.isTruthy(right.eval(frame));
+            default -> throw new IllegalStateException(
+                    "Unexpected unary operator " + operator.type());
+        };
+    }
+
+    @Override
+    public Eval visitVariableExpr(Expr.Variable expr) {
+        Token name = expr.getName();
+        int depth = expr.getDepth();
+        int slot = expr.getSlot();
+        if (depth == Environment.GLOBAL) {
+            GlobalCell cell = globals.cell(name.symbol());
+            return frame -> cell.get(name);
+        }
+        return frame -> frame.getAt(depth, slot);
+    }
+
+    @Override
+    public Exec visitBlockStmt(Stmt.Block stmt) {
+        Exec[] statements = compile(stmt.getStatements());
+        int size = stmt.getSize();
+        int[] released = stmt.getReleased();
+        if (size == 0) {
+            return frame -> {
+                for (Exec statement : statements) {
+                    statement.exec(frame);
+                }
+            };
+        }
+        if (released != null) {
+            return frame -> {
+                Environment scope = new Environment(frame, size);
+                try {
+                    for (Exec statement : statements) {
+                        statement.exec(scope);
+                    }
+                } finally {
+                    /* a return unwinds through here too */
+                    scope.release(released);
+                }
+            };
+        }
+        return frame -> {
+            Environment scope = new Environment(frame, size);
+            for (Exec statement : statements) {
+                statement.exec(scope);
+            }
+        };
+    }
+
+    @Override
+    public Exec visitClassStmt(Stmt.Class stmt) {
+        Eval superclass = stmt.getSuperclass() == null ? null
+                : compile(stmt.getSuperclass());
+        LoxFunction.Body[] methods = new LoxFunction.Body[stmt.getMethods().size()];
+        for (int i = 0; i < methods.length; i++) {
+            methods[i] = nestedBody(stmt.getMethods().get(i));
+        }
+        return frame -> {
+            Object parent = null;
+            if (superclass != null) {
+                parent = superclass.eval(frame);
+                if (!(parent instanceof LoxClass)) {
+                    throw new RuntimeError(stmt.getSuperclass().getName(),
+                            SUPER_MUST_BE_CLASS.getMsg());
+                }
+            }
+            define(frame, stmt.getName(), stmt.getSlot(), null);
+            Environment scope = frame;
+            if (parent != null) {
+                scope = new Environment(frame, 1);
+                scope.define(0, parent);
+            }
+            Map<Symbol, LoxFunction> functions = new HashMap<>();
+            for (int i = 0; i < methods.length; i++) {
+                Stmt.Function method = stmt.getMethods().get(i);
+                Symbol name = method.getName().symbol();
+                functions.put(name, new LoxFunction(method, scope,
+                        name == INIT.getSymbol(), methods[i]));
+            }
+            LoxClass clazz = new LoxClass(stmt.getName().lexeme(),
+                    (LoxClass) parent, functions);
+            define(frame, stmt.getName(), stmt.getSlot(), clazz);
+        };
+    }
+
+    @Override
+    public Exec visitExpressionStmt(Stmt.Expression stmt) {
+        Eval expression = compile(stmt.getExpression());
+        return expression::eval;
+    }
+
+    @Override
+    public Exec visitFunctionStmt(Stmt.Function stmt) {
+        LoxFunction.Body body = nestedBody(stmt);
+        return definition(stmt.getName(), stmt.getSlot(),
+                frame -> new LoxFunction(stmt, frame, false, body));
+    }
+
+    @Override
+    public Exec visitIfStmt(Stmt.If stmt) {
+        Eval condition = compile(stmt.getCondition());
+        Exec thenBranch = compile(stmt.getThenBranch());
+        if (stmt.getElseBranch() == null) {
+            return frame -> {
+                if (Interpreter.isTruthy(condition.eval(frame))) thenBranch.exec(frame);
+            };
+        }
+        Exec elseBranch = compile(stmt.getElseBranch());
+        return frame -> {
+            if (Interpreter.isTruthy(condition.eval(frame))) {
+                thenBranch.exec(frame);
+            } else {
+                elseBranch.exec(frame);
+            }
+        };
+    }
+
+    @Override
+    public Exec visitPrintStmt(Stmt.Print stmt) {
+        Eval expression = compile(stmt.getExpression());
+        return frame ->
+                System.out.println(Interpreter.stringify(expression.eval(frame)));
+    }
+
+    @Override
+    public Exec visitReturnStmt(Stmt.Return stmt) {
+        if (stmt.getValue() == null) {
+            return frame -> {
+                throw new Return(null);
+            };
+        }
+        Eval value = stmt.getTail()
+                ? call((Expr.Call) stmt.getValue(), true)
+                : compile(stmt.getValue());
+        return frame -> {
+            throw new Return(value.eval(frame));
+        };
+    }
+
+    @Override
+    public Exec visitVarStmt(Stmt.Var stmt) {
+        Eval initializer = stmt.getInitializer() == null ? frame -> null
+                : compile(stmt.getInitializer());
+        return definition(stmt.getName(), stmt.getSlot(), initializer);
+    }
+
+    @Override
+    public Exec visitWhileStmt(Stmt.While stmt) {
+        Eval condition = compile(stmt.getCondition());
+        Exec body = compile(stmt.getBody());
+        return frame -> {
+            while (Interpreter.isTruthy(condition.eval(frame))) {
+                body.exec(frame);
+            }
+        };
+    }
+}
@@ -0,0 +1,30 @@
+package org.jlox.closures;
+
+import java.util.List;
+
+import org.jlox.Engine;
+import org.jlox.Environment;
+import org.jlox.Interpreter;
+import org.jlox.Lox;
+import org.jlox.RuntimeError;
+import org.jlox.Stmt;
+
+/* Runs programs compiled to a tree of pre-linked closures. Like the node
+ * engine it borrows the tree-walker's runtime: values, environments,
+ * functions and classes, and the context natives are called with. */
+public final class ClosureInterpreter implements Engine {
+    private final Interpreter interpreter = new Interpreter();
+    private final ClosureCompiler compiler = new ClosureCompiler(interpreter);
+
+    @Override
+    public void interpret(List<Stmt> statements) {
+        Environment globals = interpreter.getGlobals();
+        try {
+            for (Exec statement : compiler.compile(statements)) {
+                statement.exec(globals);
+            }
+        } catch (RuntimeError error) {
+            Lox.runtimeError(error);
+        }
+    }
+}
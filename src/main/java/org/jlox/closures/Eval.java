@@ -0,0 +1,9 @@
+package org.jlox.closures;
+
+import org.jlox.Environment;
+
+/* an expression compiled to a closure over its operands */
+@FunctionalInterface
+interface Eval {
+    Object eval(Environment frame);
+}
@@ -0,0 +1,9 @@
+package org.jlox.closures;
+
+import org.jlox.Environment;
+
+/* an arithmetic expression compiled to work on unboxed numbers */
+@FunctionalInterface
+interface EvalDouble {
+    double eval(Environment frame);
+}
@@ -0,0 +1,9 @@
+package org.jlox.closures;
+
+import org.jlox.Environment;
+
+/* a statement compiled to a closure over its parts */
+@FunctionalInterface
+interface Exec {
+    void exec(Environment frame);
+}
@@ -0,0 +1,34 @@
+package org.jlox.closures;
+
+/* An assumption compiled code was built on. When it fails the code still
+ * finishes the operation at hand correctly, but is invalidated, so control
+ * goes back to the interpreter at the next loop back-edge or call. */
+final class Speculation {
+    /* thrown by unboxed code on reading a value that is not a number */
+    static final class Failed extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        static final Failed FAILED = new Failed();
+
+        private Failed() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final Runnable invalidate;
+    private boolean valid = true;
+
+    Speculation(Runnable invalidate) {
+        this.invalidate = invalidate;
+    }
+
+    boolean isValid() {
+        return valid;
+    }
+
+    void fail() {
+        if (!valid) return;
+        valid = false;
+        invalidate.run();
+    }
+}
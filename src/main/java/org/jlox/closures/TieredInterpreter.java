@@ -0,0 +1,91 @@
+package org.jlox.closures;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.jlox.Environment;
+import org.jlox.Interpreter;
+import org.jlox.LoxFunction;
+import org.jlox.Stmt;
+
+/* Interprets everything at first, counting calls of each function and
+ * back-edges of each loop. Once a function is hot its later calls run
+ * compiled closures; once a loop is hot the running iteration hands its
+ * environment over to a compiled copy of the loop, which picks up where
+ * the interpreter left off. Compiled code assumes the variables that
+ * arithmetic and comparisons read hold numbers, and works on them
+ * unboxed; when one does not, the code is thrown away and recompiled
+ * without the assumption once it is hot again. */
+public final class TieredInterpreter extends Interpreter {
+    private static final int CALL_THRESHOLD = 50;
+    private static final int BACK_EDGE_THRESHOLD = 1_000;
+
+    private record Loop(Eval condition, Exec body, Speculation speculation) {
+    }
+
+    private final Map<Stmt.While, Loop> loops = new IdentityHashMap<>();
+    private final Set<Stmt> deoptimised =
+            Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /* only reached while the declaration has no compiled body, which
+     * LoxFunction runs directly once it has */
+    @Override
+    protected Object executeFunction(Stmt.Function declaration, Environment environment) {
+        declaration.setCalls(declaration.getCalls() + 1);
+        if (declaration.getCalls() < CALL_THRESHOLD) {
+            return super.executeFunction(declaration, environment);
+        }
+        LoxFunction.Body code = compile(declaration);
+        declaration.setCompiled(code);
+        code.execute(environment);
+        return null;
+    }
+
+    /* on-stack replacement: the compiled loop continues from the state the
+     * interpreted iterations left in the environment */
+    @Override
+    protected boolean onBackEdge(Stmt.While loop, Environment environment) {
+        loop.setBackEdges(loop.getBackEdges() + 1);
+        if (loop.getBackEdges() < BACK_EDGE_THRESHOLD) return false;
+        Loop code = loops.computeIfAbsent(loop, this::compile);
+        while (isTruthy(code.condition().eval(environment))) {
+            code.body().exec(environment);
+            if (!code.speculation().isValid()) return false;
+        }
+        return true;
+    }
+
+    private LoxFunction.Body compile(Stmt.Function declaration) {
+        Speculation speculation = speculate(declaration, () -> {
+            declaration.setCompiled(null);
+            declaration.setCalls(0);
+        });
+        return compiler(speculation).body(declaration);
+    }
+
+    private Loop compile(Stmt.While loop) {
+        Speculation speculation = speculate(loop, () -> {
+            loops.remove(loop);
+            loop.setBackEdges(0);
+        });
+        ClosureCompiler compiler = compiler(speculation);
+        return new Loop(compiler.compile(loop.getCondition()),
+                compiler.compile(loop.getBody()),
+                speculation == null ? new Speculation(() -> { }) : speculation);
+    }
+
+    private ClosureCompiler compiler(Speculation speculation) {
+        return new ClosureCompiler(this, true, speculation);
+    }
+
+    /* code that has been deoptimised once is compiled without speculating */
+    private Speculation speculate(Stmt code, Runnable invalidate) {
+        if (deoptimised.contains(code)) return null;
+        return new Speculation(() -> {
+            invalidate.run();
+            deoptimised.add(code);
+        });
+    }
+}
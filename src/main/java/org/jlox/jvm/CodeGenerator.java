@@ -0,0 +1,751 @@
+package org.jlox.jvm;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jlox.Environment;
+import org.jlox.Expr;
+import org.jlox.LoxFunction;
+import org.jlox.Stmt;
+import org.jlox.Token;
+import org.jlox.TokenType;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/* Emits one unit of Lox code - a function body or a script - as a class
+ * implementing LoxFunction.Body. The values the code needs that have no
+ * constant pool form (tokens for error reporting, nested bodies, numbers)
+ * are passed to the constructor and read from a final array.
+ *
+ * When the unit declares no function or class of its own nothing can
+ * capture its variables, so every scope is elided into JVM locals.
+ * Otherwise each scope a closure is created in keeps its Environment,
+ * held in a JVM local, since the closures walk that chain by depth, but
+ * only for the variables they capture: the rest, which the resolver lists
+ * as released, live in JVM locals too. */
+final class CodeGenerator implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    static final String CLASS_NAME = "org/jlox/jvm/LoxCode";
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String ENVIRONMENT = "org/jlox/Environment";
+    private static final String TOKEN = "org/jlox/Token";
+    private static final String INTERPRETER = "org/jlox/Interpreter";
+    private static final String FUNCTION = "org/jlox/LoxFunction";
+    private static final String BODY = "org/jlox/LoxFunction$Body";
+    private static final String OPS = "org/jlox/jvm/Ops";
+    private static final String CACHE = "org/jlox/InlineCache";
+    private static final String SYMBOL = "org/jlox/Symbol";
+    private static final String CELL = "org/jlox/GlobalCell";
+
+    private static final String BINARY = "(Ljava/lang/Object;Ljava/lang/Object;Lorg/jlox/Token;)Ljava/lang/Object;";
+    private static final String COMPARISON = "(Ljava/lang/Object;Ljava/lang/Object;Lorg/jlox/Token;)Z";
+    private static final String GET_AT = "(II)Ljava/lang/Object;";
+
+    /* a scope's slots are spread over consecutive JVM locals, except for
+     * the captured ones of a scope with an Environment held in a JVM local */
+    private record Scope(int environment, int firstLocal, int[] released) {
+        boolean isElided() {
+            return environment < 0;
+        }
+
+        boolean inLocal(int slot) {
+            if (isElided()) return true;
+            for (int local : released) {
+                if (local == slot) return true;
+            }
+            return false;
+        }
+    }
+
+    private final JvmCompiler compiler;
+    private final boolean elided;
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, Integer> constantIndices = new IdentityHashMap<>();
+    private final List<Scope> scopes = new ArrayList<>();
+    private final ClassWriter writer;
+    private final MethodVisitor mv;
+    private int nextLocal = 2;
+    private int globalsLocal;
+    private int scratchLocal;
+    private int closureLocal = -1;
+    private int line = 0;
+
+    CodeGenerator(JvmCompiler compiler, boolean elided) {
+        this.compiler = compiler;
+        this.elided = elided;
+        this.writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+            /* every value the code merges is only ever used as an Object */
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return OBJECT;
+            }
+        };
+        writer.visit(V17, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, CLASS_NAME, null,
+                OBJECT, new String[] {BODY});
+        writer.visitField(ACC_PRIVATE | ACC_FINAL, "constants",
+                "[Ljava/lang/Object;", null, null).visitEnd();
+        defineConstructor();
+        this.mv = writer.visitMethod(ACC_PUBLIC, "execute",
+                "(Lorg/jlox/Environment;)V", null, null);
+        mv.visitCode();
+        globalsLocal = newLocal();
+        loadConstant(compiler.getGlobals(), ENVIRONMENT);
+        mv.visitVarInsn(ASTORE, globalsLocal);
+        scratchLocal = newLocal();
+    }
+
+    Object[] getConstants() {
+        return constants.toArray();
+    }
+
+    int getLine() {
+        return line;
+    }
+
+    byte[] script(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            statement.accept(this);
+        }
+        return finish();
+    }
+
+    /* the argument is the environment LoxFunction.call created for the
+     * parameters, and its enclosing environment is the closure */
+    byte[] function(Stmt.Function declaration) {
+        line = declaration.getName().line();
+        closureLocal = newLocal();
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKEVIRTUAL, ENVIRONMENT, "getEnclosing",
+                "()Lorg/jlox/Environment;", false);
+        mv.visitVarInsn(ASTORE, closureLocal);
+        if (elided) {
+            int first = newLocals(declaration.getSize());
+            int arity = declaration.getParams().size();
+            for (int i = 0; i < declaration.getSize(); i++) {
+                if (i < arity) {
+                    mv.visitVarInsn(ALOAD, 1);
+                    pushInt(0);
+                    pushInt(i);
+                    mv.visitMethodInsn(INVOKEVIRTUAL, ENVIRONMENT, "getAt", GET_AT, false);
+                } else {
+                    mv.visitInsn(ACONST_NULL);
+                }
+                mv.visitVarInsn(ASTORE, first + i);
+            }
+            scopes.add(new Scope(-1, first, null));
+        } else {
+            scopes.add(splitScope(1, declaration.getSize(),
+                    declaration.getParams().size(), declaration.getReleased()));
+        }
+        for (Stmt statement : declaration.getBody()) {
+            statement.accept(this);
+        }
+        return finish();
+    }
+
+    private void defineConstructor() {
+        MethodVisitor init = writer.visitMethod(ACC_PUBLIC, "<init>",
+                "([Ljava/lang/Object;)V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        init.visitVarInsn(ALOAD, 0);
+        init.visitVarInsn(ALOAD, 1);
+        init.visitFieldInsn(PUTFIELD, CLASS_NAME, "constants", "[Ljava/lang/Object;");
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+    }
+
+    private byte[] finish() {
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /* moves the released slots of a scope with an Environment into JVM
+     * locals, taking the parameters among them out of the Environment so
+     * the closures sharing it do not keep them alive */
+    private Scope splitScope(int environment, int size, int arity, int[] released) {
+        int first = newLocals(size);
+        for (int slot : released) {
+            if (slot < arity) {
+                mv.visitVarInsn(ALOAD, environment);
+                pushInt(0);
+                pushInt(slot);
+                mv.visitMethodInsn(INVOKEVIRTUAL, ENVIRONMENT, "getAt", GET_AT, false);
+                mv.visitVarInsn(ASTORE, first + slot);
+                mv.visitVarInsn(ALOAD, environment);
+                pushInt(slot);
+                mv.visitInsn(ACONST_NULL);
+                mv.visitMethodInsn(INVOKEVIRTUAL, ENVIRONMENT, "define",
+                        "(ILjava/lang/Object;)V", false);
+            } else {
+                mv.visitInsn(ACONST_NULL);
+                mv.visitVarInsn(ASTORE, first + slot);
+            }
+        }
+        return new Scope(environment, first, released);
+    }
+
+    private int newLocal() {
+        return nextLocal++;
+    }
+
+    private int newLocals(int count) {
+        int first = nextLocal;
+        nextLocal += count;
+        return first;
+    }
+
+    private void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    private void loadConstant(Object value, String type) {
+        Integer index = constantIndices.get(value);
+        if (index == null) {
+            index = constants.size();
+            constants.add(value);
+            constantIndices.put(value, index);
+        }
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, CLASS_NAME, "constants", "[Ljava/lang/Object;");
+        pushInt(index);
+        mv.visitInsn(AALOAD);
+        if (!type.equals(OBJECT)) mv.visitTypeInsn(CHECKCAST, type);
+    }
+
+    private void loadToken(Token token) {
+        line = token.line();
+        loadConstant(token, TOKEN);
+    }
+
+    private void box() {
+        mv.visitMethodInsn(INVOKESTATIC, "java/lang/Boolean", "valueOf",
+                "(Z)Ljava/lang/Boolean;", false);
+    }
+
+    private void isTruthy() {
+        mv.visitMethodInsn(INVOKESTATIC, INTERPRETER, "isTruthy",
+                "(Ljava/lang/Object;)Z", false);
+    }
+
+    /* the environment closures created here capture */
+    private void loadCurrentEnvironment() {
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            if (!scopes.get(i).isElided()) {
+                mv.visitVarInsn(ALOAD, scopes.get(i).environment());
+                return;
+            }
+        }
+        mv.visitVarInsn(ALOAD, 1);
+    }
+
+    private void load(int depth, int slot) {
+        int count = scopes.size();
+        if (depth >= count) {
+            mv.visitVarInsn(ALOAD, closureLocal);
+            pushInt(depth - count);
+        } else {
+            Scope scope = scopes.get(count - 1 - depth);
+            if (scope.inLocal(slot)) {
+                mv.visitVarInsn(ALOAD, scope.firstLocal() + slot);
+                return;
+            }
+            mv.visitVarInsn(ALOAD, scope.environment());
+            pushInt(0);
+        }
+        pushInt(slot);
+        mv.visitMethodInsn(INVOKEVIRTUAL, ENVIRONMENT, "getAt", GET_AT, false);
+    }
+
+    /* stores the value on top of the stack, leaving it there if asked */
+    private void store(Token name, int depth, int slot, boolean keep) {
+        int count = scopes.size();
+        if (depth != Environment.GLOBAL && depth < count
+                && scopes.get(count - 1 - depth).inLocal(slot)) {
+            if (keep) mv.visitInsn(DUP);
+            mv.visitVarInsn(ASTORE, scopes.get(count - 1 - depth).firstLocal() + slot);
+            return;
+        }
+        mv.visitVarInsn(ASTORE, scratchLocal);
+        if (depth == Environment.GLOBAL) {
+            loadConstant(compiler.getGlobals().cell(name.symbol()), CELL);
+            loadToken(name);
+            mv.visitVarInsn(ALOAD, scratchLocal);
+            mv.visitMethodInsn(INVOKEVIRTUAL, CELL, "assign",
+                    "(Lorg/jlox/Token;Ljava/lang/Object;)V", false);
+        } else {
+            if (depth >= count) {
+                mv.visitVarInsn(ALOAD, closureLocal);
+                pushInt(depth - count);
+            } else {
+                mv.visitVarInsn(ALOAD, scopes.get(count - 1 - depth).environment());
+                pushInt(0);
+            }
+            pushInt(slot);
+            mv.visitVarInsn(ALOAD, scratchLocal);
+            mv.visitMethodInsn(INVOKEVIRTUAL, ENVIRONMENT, "assignAt",
+                    "(IILjava/lang/Object;)V", false);
+        }
+        if (keep) mv.visitVarInsn(ALOAD, scratchLocal);
+    }
+
+    /* declares the value on top of the stack in the innermost scope */
+    private void define(Token name, int slot) {
+        line = name.line();
+        if (slot == Environment.GLOBAL) {
+            mv.visitVarInsn(ASTORE, scratchLocal);
+            mv.visitVarInsn(ALOAD, globalsLocal);
+            loadConstant(name.symbol(), SYMBOL);
+            mv.visitVarInsn(ALOAD, scratchLocal);
+            mv.visitMethodInsn(INVOKEVIRTUAL, ENVIRONMENT, "define",
+                    "(Lorg/jlox/Symbol;Ljava/lang/Object;)V", false);
+            return;
+        }
+        Scope scope = scopes.get(scopes.size() - 1);
+        if (scope.inLocal(slot)) {
+            mv.visitVarInsn(ASTORE, scope.firstLocal() + slot);
+            return;
+        }
+        mv.visitVarInsn(ASTORE, scratchLocal);
+        mv.visitVarInsn(ALOAD, scope.environment());
+        pushInt(slot);
+        mv.visitVarInsn(ALOAD, scratchLocal);
+        mv.visitMethodInsn(INVOKEVIRTUAL, ENVIRONMENT, "define",
+                "(ILjava/lang/Object;)V", false);
+    }
+
+    /* jumps to target when the condition's truthiness matches jumpIf,
+     * without boxing the result of comparisons along the way */
+    private void branch(Expr condition, Label target, boolean jumpIf) {
+        if (condition instanceof Expr.Grouping grouping) {
+            branch(grouping.getExpression(), target, jumpIf);
+        } else if (condition instanceof Expr.Unary unary
+                && unary.getOperator().type() == TokenType.BANG) {
+            branch(unary.getRight(), target, !jumpIf);
+        } else if (condition instanceof Expr.Logical logical) {
+            boolean isOr = logical.getOperator().type() == TokenType.OR;
+            if (isOr == jumpIf) {
+                branch(logical.getLeft(), target, jumpIf);
+                branch(logical.getRight(), target, jumpIf);
+            } else {
+                Label skip = new Label();
+                branch(logical.getLeft(), skip, !jumpIf);
+                branch(logical.getRight(), target, jumpIf);
+                mv.visitLabel(skip);
+            }
+        } else if (condition instanceof Expr.Binary binary && test(binary)) {
+            mv.visitJumpInsn(jumpIf ? IFNE : IFEQ, target);
+        } else {
+            condition.accept(this);
+            isTruthy();
+            mv.visitJumpInsn(jumpIf ? IFNE : IFEQ, target);
+        }
+    }
+
+    /* leaves the outcome of a comparison as an int, if it is one */
+    private boolean test(Expr.Binary expr) {
+        String method = switch (expr.getOperator().type()) {
+            case GREATER -> "isGreater";
+            case GREATER_EQUAL -> "isGreaterEqual";
+            case LESS -> "isLess";
+            case LESS_EQUAL -> "isLessEqual";
+            case EQUAL_EQUAL, BANG_EQUAL -> "isEqual";
+            default -> null;
+        };
+        if (method == null) return false;
+        expr.getLeft().accept(this);
+        expr.getRight().accept(this);
+        if (method.equals("isEqual")) {
+            mv.visitMethodInsn(INVOKESTATIC, INTERPRETER, "isEqual",
+                    "(Ljava/lang/Object;Ljava/lang/Object;)Z", false);
+            if (expr.getOperator().type() == TokenType.BANG_EQUAL) {
+                mv.visitInsn(ICONST_1);
+                mv.visitInsn(IXOR);
+            }
+        } else {
+            loadToken(expr.getOperator());
+            mv.visitMethodInsn(INVOKESTATIC, OPS, method, COMPARISON, false);
+        }
+        return true;
+    }
+
+    private void assign(Expr.Assign expr, boolean keep) {
+        expr.getValue().accept(this);
+        store(expr.getName(), expr.getDepth(), expr.getSlot(), keep);
+    }
+
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        assign(expr, true);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        if (test(expr)) {
+            box();
+            return null;
+        }
+        String method = switch (expr.getOperator().type()) {
+            case PLUS -> "add";
+            case MINUS -> "subtract";
+            case STAR -> "multiply";
+            case SLASH -> "divide";
+            default -> throw new IllegalStateException(
+                    "Unexpected binary operator " + expr.getOperator().type());
+        };
+        expr.getLeft().accept(this);
+        expr.getRight().accept(this);
+        loadToken(expr.getOperator());
+        mv.visitMethodInsn(INVOKESTATIC, OPS, method, BINARY, false);
+        return null;
+    }
+
+    @Override
+    public Void visitCallExpr(Expr.Call expr) {
+        call(expr, false);
+        return null;
+    }
+
+    /* a call in tail position always gathers its arguments, since
+     * Ops.tailCall hands them to a LoxFunction.TailCall */
+    private void call(Expr.Call expr, boolean tail) {
+        if (expr.getCallee() instanceof Expr.Get get) {
+            invoke(expr, get, tail);
+            return;
+        }
+        expr.getCallee().accept(this);
+        int count = expr.getArgs().size();
+        /* the common arities pass their arguments on the operand stack */
+        boolean spread = !tail && count <= 3;
+        if (spread) {
+            for (Expr arg : expr.getArgs()) {
+                arg.accept(this);
+            }
+        } else {
+            loadArgs(expr.getArgs());
+        }
+        loadToken(expr.getParen());
+        loadConstant(expr.getCache(), CACHE);
+        loadConstant(compiler.getInterpreter(), INTERPRETER);
+        String name = tail ? "tailCall" : spread ? "call" + count : "call";
+        String args = spread ? "Ljava/lang/Object;".repeat(count) : "[Ljava/lang/Object;";
+        mv.visitMethodInsn(INVOKESTATIC, OPS, name,
+                "(Ljava/lang/Object;" + args + "Lorg/jlox/Token;Lorg/jlox/InlineCache;Lorg/jlox/Interpreter;)Ljava/lang/Object;",
+                false);
+    }
+
+    /* obj.method(args) keeps the receiver and the unbound method on the
+     * operand stack, so a method is invoked without being bound first */
+    private void invoke(Expr.Call expr, Expr.Get get, boolean tail) {
+        get.getObject().accept(this);
+        mv.visitInsn(DUP);
+        loadToken(get.getName());
+        loadConstant(get.getCache(), CACHE);
+        mv.visitMethodInsn(INVOKESTATIC, OPS, "method",
+                "(Ljava/lang/Object;Lorg/jlox/Token;Lorg/jlox/InlineCache;)Lorg/jlox/LoxFunction;",
+                false);
+        mv.visitInsn(DUP2);
+        loadToken(get.getName());
+        loadConstant(get.getCache(), CACHE);
+        mv.visitMethodInsn(INVOKESTATIC, OPS, "callee",
+                "(Ljava/lang/Object;Lorg/jlox/LoxFunction;Lorg/jlox/Token;Lorg/jlox/InlineCache;)Ljava/lang/Object;",
+                false);
+        loadArgs(expr.getArgs());
+        loadToken(expr.getParen());
+        loadConstant(expr.getCache(), CACHE);
+        loadConstant(compiler.getInterpreter(), INTERPRETER);
+        mv.visitMethodInsn(INVOKESTATIC, OPS, tail ? "tailInvoke" : "invoke",
+                "(Ljava/lang/Object;Lorg/jlox/LoxFunction;Ljava/lang/Object;[Ljava/lang/Object;Lorg/jlox/Token;Lorg/jlox/InlineCache;Lorg/jlox/Interpreter;)Ljava/lang/Object;",
+                false);
+    }
+
+    private void loadArgs(List<Expr> args) {
+        pushInt(args.size());
+        mv.visitTypeInsn(ANEWARRAY, OBJECT);
+        for (int i = 0; i < args.size(); i++) {
+            mv.visitInsn(DUP);
+            pushInt(i);
+            args.get(i).accept(this);
+            mv.visitInsn(AASTORE);
+        }
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        expr.getExpression().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitGetExpr(Expr.Get expr) {
+        expr.getObject().accept(this);
+        loadToken(expr.getName());
+        loadConstant(expr.getCache(), CACHE);
+        mv.visitMethodInsn(INVOKESTATIC, OPS, "get",
+                "(Ljava/lang/Object;Lorg/jlox/Token;Lorg/jlox/InlineCache;)Ljava/lang/Object;",
+                false);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        Object value = expr.getValue();
+        if (value == null) {
+            mv.visitInsn(ACONST_NULL);
+        } else if (value instanceof Boolean b) {
+            mv.visitFieldInsn(GETSTATIC, "java/lang/Boolean", b ? "TRUE" : "FALSE",
+                    "Ljava/lang/Boolean;");
+        } else if (value instanceof String s) {
+            mv.visitLdcInsn(s);
+        } else {
+            loadConstant(value, OBJECT);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        Label end = new Label();
+        expr.getLeft().accept(this);
+        mv.visitInsn(DUP);
+        isTruthy();
+        boolean isOr = expr.getOperator().type() == TokenType.OR;
+        mv.visitJumpInsn(isOr ? IFNE : IFEQ, end);
+        mv.visitInsn(POP);
+        expr.getRight().accept(this);
+        mv.visitLabel(end);
+        return null;
+    }
+
+    @Override
+    public Void visitSelfExpr(Expr.Self expr) {
+        load(expr.getDepth(), expr.getSlot());
+        return null;
+    }
+
+    @Override
+    public Void visitSetExpr(Expr.Set expr) {
+        expr.getObject().accept(this);
+        loadToken(expr.getName());
+        mv.visitMethodInsn(INVOKESTATIC, OPS, "instance",
+                "(Ljava/lang/Object;Lorg/jlox/Token;)Lorg/jlox/LoxInstance;", false);
+        expr.getValue().accept(this);
+        loadToken(expr.getName());
+        loadConstant(expr.getCache(), CACHE);
+        mv.visitMethodInsn(INVOKESTATIC, OPS, "set",
+                "(Lorg/jlox/LoxInstance;Ljava/lang/Object;Lorg/jlox/Token;Lorg/jlox/InlineCache;)Ljava/lang/Object;",
+                false);
+        return null;
+    }
+
+    @Override
+    public Void visitSuperExpr(Expr.Super expr) {
+        line = expr.getMethod().line();
+        load(expr.getDepth(), 0);
+        load(expr.getDepth() - 1, 0);
+        loadConstant(expr.getMethod().symbol(), SYMBOL);
+        mv.visitMethodInsn(INVOKESTATIC, OPS, "superMethod",
+                "(Ljava/lang/Object;Ljava/lang/Object;Lorg/jlox/Symbol;)Ljava/lang/Object;",
+                false);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        expr.getRight().accept(this);
+        switch (expr.getOperator().type()) {
+            case MINUS -> {
+                loadToken(expr.getOperator());
+                mv.visitMethodInsn(INVOKESTATIC, OPS, "negate",
+                        "(Ljava/lang/Object;Lorg/jlox/Token;)Ljava/lang/Object;", false);
+            }
+            case BANG -> {
+                isTruthy();
+                mv.visitInsn(ICONST_1);
+                mv.visitInsn(IXOR);
+                box();
+            }
+            default -> throw new IllegalStateException(
+                    "Unexpected unary operator " + expr.getOperator().type());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        if (expr.getDepth() == Environment.GLOBAL) {
+            loadConstant(compiler.getGlobals().cell(expr.getName().symbol()), CELL);
+            loadToken(expr.getName());
+            mv.visitMethodInsn(INVOKEVIRTUAL, CELL, "get",
+                    "(Lorg/jlox/Token;)Ljava/lang/Object;", false);
+        } else {
+            line = expr.getName().line();
+            load(expr.getDepth(), expr.getSlot());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        if (stmt.getSize() == 0) {
+            for (Stmt statement : stmt.getStatements()) {
+                statement.accept(this);
+            }
+            return null;
+        }
+        /* without a closure created in it nothing outlives the block */
+        if (elided || stmt.getReleased() == null) {
+            int first = newLocals(stmt.getSize());
+            for (int i = 0; i < stmt.getSize(); i++) {
+                mv.visitInsn(ACONST_NULL);
+                mv.visitVarInsn(ASTORE, first + i);
+            }
+            scopes.add(new Scope(-1, first, null));
+        } else {
+            int environment = newLocal();
+            mv.visitTypeInsn(NEW, ENVIRONMENT);
+            mv.visitInsn(DUP);
+            loadCurrentEnvironment();
+            pushInt(stmt.getSize());
+            mv.visitMethodInsn(INVOKESPECIAL, ENVIRONMENT, "<init>",
+                    "(Lorg/jlox/Environment;I)V", false);
+            mv.visitVarInsn(ASTORE, environment);
+            scopes.add(splitScope(environment, stmt.getSize(), 0, stmt.getReleased()));
+        }
+        for (Stmt statement : stmt.getStatements()) {
+            statement.accept(this);
+        }
+        scopes.remove(scopes.size() - 1);
+        return null;
+    }
+
+    @Override
+    public Void visitClassStmt(Stmt.Class stmt) {
+        LoxFunction.Body[] bodies = new LoxFunction.Body[stmt.getMethods().size()];
+        for (int i = 0; i < bodies.length; i++) {
+            bodies[i] = compiler.compileFunction(stmt.getMethods().get(i));
+        }
+        if (stmt.getSuperclass() != null) {
+            stmt.getSuperclass().accept(this);
+        } else {
+            mv.visitInsn(ACONST_NULL);
+        }
+        loadCurrentEnvironment();
+        loadConstant(stmt, "org/jlox/Stmt$Class");
+        loadConstant(bodies, "[Lorg/jlox/LoxFunction$Body;");
+        mv.visitMethodInsn(INVOKESTATIC, OPS, "defineClass",
+                "(Ljava/lang/Object;Lorg/jlox/Environment;Lorg/jlox/Stmt$Class;[Lorg/jlox/LoxFunction$Body;)Lorg/jlox/LoxClass;",
+                false);
+        define(stmt.getName(), stmt.getSlot());
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        if (stmt.getExpression() instanceof Expr.Assign assign) {
+            assign(assign, false);
+        } else {
+            stmt.getExpression().accept(this);
+            mv.visitInsn(POP);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(Stmt.Function stmt) {
+        LoxFunction.Body body = compiler.compileFunction(stmt);
+        mv.visitTypeInsn(NEW, FUNCTION);
+        mv.visitInsn(DUP);
+        loadConstant(stmt, "org/jlox/Stmt$Function");
+        loadCurrentEnvironment();
+        mv.visitInsn(ICONST_0);
+        loadConstant(body, BODY);
+        mv.visitMethodInsn(INVOKESPECIAL, FUNCTION, "<init>",
+                "(Lorg/jlox/Stmt$Function;Lorg/jlox/Environment;ZLorg/jlox/LoxFunction$Body;)V",
+                false);
+        define(stmt.getName(), stmt.getSlot());
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        Label elseBranch = new Label();
+        branch(stmt.getCondition(), elseBranch, false);
+        stmt.getThenBranch().accept(this);
+        if (stmt.getElseBranch() == null) {
+            mv.visitLabel(elseBranch);
+            return null;
+        }
+        Label end = new Label();
+        mv.visitJumpInsn(GOTO, end);
+        mv.visitLabel(elseBranch);
+        stmt.getElseBranch().accept(this);
+        mv.visitLabel(end);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        stmt.getExpression().accept(this);
+        mv.visitMethodInsn(INVOKESTATIC, OPS, "print", "(Ljava/lang/Object;)V", false);
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStmt(Stmt.Return stmt) {
+        line = stmt.getKeyword().line();
+        if (stmt.getTail()) {
+            call((Expr.Call) stmt.getValue(), true);
+        } else if (stmt.getValue() != null) {
+            stmt.getValue().accept(this);
+        } else {
+            mv.visitInsn(ACONST_NULL);
+        }
+        mv.visitMethodInsn(INVOKESTATIC, OPS, "returning",
+                "(Ljava/lang/Object;)Lorg/jlox/Return;", false);
+        mv.visitInsn(ATHROW);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        if (stmt.getInitializer() != null) {
+            stmt.getInitializer().accept(this);
+        } else {
+            mv.visitInsn(ACONST_NULL);
+        }
+        define(stmt.getName(), stmt.getSlot());
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        Label start = new Label();
+        Label end = new Label();
+        mv.visitLabel(start);
+        branch(stmt.getCondition(), end, false);
+        stmt.getBody().accept(this);
+        mv.visitJumpInsn(GOTO, start);
+        mv.visitLabel(end);
+        return null;
+    }
+}
@@ -0,0 +1,120 @@
+package org.jlox.jvm;
+
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+
+import org.jlox.Environment;
+import org.jlox.Interpreter;
+import org.jlox.Lox;
+import org.jlox.LoxFunction;
+import org.jlox.Stmt;
+import org.objectweb.asm.ClassTooLargeException;
+import org.objectweb.asm.MethodTooLargeException;
+
+import static org.jlox.ErrorMessage.CODE_LIMIT;
+
+/* Compiles resolved programs to JVM classes and loads them as hidden
+ * classes, one per function body plus one for the script, so HotSpot
+ * optimises Lox code itself rather than an interpreter running it. */
+final class JvmCompiler {
+    /* aborts a compilation that has already reported its error */
+    private static final class CompileError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        CompileError() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private final Interpreter interpreter;
+
+    JvmCompiler(Interpreter interpreter) {
+        this.interpreter = interpreter;
+    }
+
+    Interpreter getInterpreter() {
+        return interpreter;
+    }
+
+    Environment getGlobals() {
+        return interpreter.getGlobals();
+    }
+
+    /* null when a function was too large to compile */
+    LoxFunction.Body compile(List<Stmt> statements) {
+        try {
+            return compileScript(statements);
+        } catch (CompileError error) {
+            return null;
+        }
+    }
+
+    /* a script too large for one method is split, which is safe because
+     * its top-level statements only share globals */
+    private LoxFunction.Body compileScript(List<Stmt> statements) {
+        CodeGenerator generator = new CodeGenerator(this, !declaresClosures(statements));
+        try {
+            return load(generator.script(statements), generator.getConstants());
+        } catch (MethodTooLargeException | ClassTooLargeException e) {
+            if (statements.size() < 2) {
+                Lox.error(generator.getLine(), CODE_LIMIT.getMsg());
+                throw new CompileError();
+            }
+            int half = statements.size() / 2;
+            LoxFunction.Body first = compileScript(statements.subList(0, half));
+            LoxFunction.Body second = compileScript(statements.subList(half, statements.size()));
+            return environment -> {
+                first.execute(environment);
+                second.execute(environment);
+            };
+        }
+    }
+
+    LoxFunction.Body compileFunction(Stmt.Function declaration) {
+        CodeGenerator generator = new CodeGenerator(this,
+                !declaresClosures(declaration.getBody()));
+        try {
+            return load(generator.function(declaration), generator.getConstants());
+        } catch (MethodTooLargeException | ClassTooLargeException e) {
+            Lox.error(declaration.getName(), CODE_LIMIT.getMsg());
+            throw new CompileError();
+        }
+    }
+
+    private LoxFunction.Body load(byte[] code, Object[] constants) {
+        try {
+            Class<?> unit = lookup.defineHiddenClass(code, true).lookupClass();
+            return (LoxFunction.Body) unit.getConstructor(Object[].class)
+                    .newInstance((Object) constants);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not load compiled code", e);
+        }
+    }
+
+    /* whether a function or class is declared in a local scope of this
+     * code, where it could capture the variables around it */
+    private static boolean declaresClosures(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            if (declaresClosures(statement)) return true;
+        }
+        return false;
+    }
+
+    private static boolean declaresClosures(Stmt statement) {
+        if (statement instanceof Stmt.Function function) {
+            return function.getSlot() != Environment.GLOBAL;
+        } else if (statement instanceof Stmt.Class clazz) {
+            return clazz.getSlot() != Environment.GLOBAL;
+        } else if (statement instanceof Stmt.Block block) {
+            return declaresClosures(block.getStatements());
+        } else if (statement instanceof Stmt.If branch) {
+            return declaresClosures(branch.getThenBranch())
+                    || (branch.getElseBranch() != null
+                        && declaresClosures(branch.getElseBranch()));
+        } else if (statement instanceof Stmt.While loop) {
+            return declaresClosures(loop.getBody());
+        }
+        return false;
+    }
+}
@@ -0,0 +1,29 @@
+package org.jlox.jvm;
+
+import java.util.List;
+
+import org.jlox.Engine;
+import org.jlox.Interpreter;
+import org.jlox.Lox;
+import org.jlox.LoxFunction;
+import org.jlox.RuntimeError;
+import org.jlox.Stmt;
+
+/* Runs programs compiled to JVM bytecode. Each chunk of input, a whole
+ * file or one REPL line, becomes a script class run against the globals,
+ * which are shared with the tree-walker runtime like every other engine. */
+public final class JvmInterpreter implements Engine {
+    private final Interpreter interpreter = new Interpreter();
+    private final JvmCompiler compiler = new JvmCompiler(interpreter);
+
+    @Override
+    public void interpret(List<Stmt> statements) {
+        LoxFunction.Body script = compiler.compile(statements);
+        if (script == null) return;
+        try {
+            script.execute(interpreter.getGlobals());
+        } catch (RuntimeError error) {
+            Lox.runtimeError(error);
+        }
+    }
+}
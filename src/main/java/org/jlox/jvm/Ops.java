@@ -0,0 +1,237 @@
+package org.jlox.jvm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jlox.Environment;
+import org.jlox.InlineCache;
+import org.jlox.Interpreter;
+import org.jlox.LoxCallable;
+import org.jlox.LoxClass;
+import org.jlox.LoxFunction;
+import org.jlox.LoxInstance;
+import org.jlox.Return;
+import org.jlox.Rope;
+import org.jlox.RuntimeError;
+import org.jlox.Stmt;
+import org.jlox.Symbol;
+import org.jlox.Token;
+
+import static org.jlox.ErrorMessage.DIVIDE_BY_ZERO;
+import static org.jlox.ErrorMessage.INVALID_CALL;
+import static org.jlox.ErrorMessage.INVALID_CALL_PARAMS;
+import static org.jlox.ErrorMessage.MATCH_OPERANDS;
+import static org.jlox.ErrorMessage.NOT_INSTANCE;
+import static org.jlox.ErrorMessage.NOT_INSTANCE_FIELDS;
+import static org.jlox.ErrorMessage.OPERAND_NUMBER;
+import static org.jlox.ErrorMessage.OPERAND_NUMBERS;
+import static org.jlox.ErrorMessage.SUPER_MUST_BE_CLASS;
+import static org.jlox.LoxConstants.INIT;
+
+/* The operations generated code calls into. They are small enough for
+ * HotSpot to inline into the compiled Lox code, so keeping them here
+ * rather than emitting them inline costs nothing once the code is hot. */
+final class Ops {
+    private Ops() {
+    }
+
+    static Object add(Object l, Object r, Token operator) {
+        if (l instanceof Double a && r instanceof Double b) return a + b;
+        if ((l instanceof CharSequence || l instanceof Double) &&
+            (r instanceof CharSequence || r instanceof Double)) {
+            return Rope.concat(l, r);
+        }
+        throw new RuntimeError(operator, MATCH_OPERANDS.getMsg());
+    }
+
+    static Object subtract(Object l, Object r, Token operator) {
+        checkNumberOperands(l, r, operator);
+        return (double) l - (double) r;
+    }
+
+    static Object multiply(Object l, Object r, Token operator) {
+        checkNumberOperands(l, r, operator);
+        return (double) l * (double) r;
+    }
+
+    static Object divide(Object l, Object r, Token operator) {
+        checkNumberOperands(l, r, operator);
+        if ((double) l == 0 || (double) r == 0) {
+            throw new RuntimeError(operator, DIVIDE_BY_ZERO.getMsg());
+        }
+        return (double) l / (double) r;
+    }
+
+    static boolean isGreater(Object l, Object r, Token operator) {
+        checkNumberOperands(l, r, operator);
+        return (double) l > (double) r;
+    }
+
+    static boolean isGreaterEqual(Object l, Object r, Token operator) {
+        checkNumberOperands(l, r, operator);
+        return (double) l >= (double) r;
+    }
+
+    static boolean isLess(Object l, Object r, Token operator) {
+        checkNumberOperands(l, r, operator);
+        return (double) l < (double) r;
+    }
+
+    static boolean isLessEqual(Object l, Object r, Token operator) {
+        checkNumberOperands(l, r, operator);
+        return (double) l <= (double) r;
+    }
+
+    private static void checkNumberOperands(Object l, Object r, Token operator) {
+        if (l instanceof Double && r instanceof Double) return;
+        throw new RuntimeError(operator, OPERAND_NUMBERS.getMsg());
+    }
+
+    static Object negate(Object value, Token operator) {
+        if (value instanceof Double d) return -d;
+        throw new RuntimeError(operator, OPERAND_NUMBER.getMsg());
+    }
+
+    static Object call(Object callee, Object[] args, Token paren,
+                       InlineCache cache, Interpreter interpreter) {
+        if (!(callee instanceof LoxCallable callable)) {
+            throw new RuntimeError(paren, INVALID_CALL.getMsg());
+        }
+        int arity = callable instanceof LoxClass clazz
+                ? clazz.arity(cache) : callable.arity();
+        if (args.length != arity) {
+            throw new RuntimeError(paren,
+                    String.format(INVALID_CALL_PARAMS.getMsg(),
+                            arity, args.length));
+        }
+        if (callable instanceof LoxClass clazz) {
+            return clazz.call(interpreter, args, cache);
+        }
+        return callable.call(interpreter, args);
+    }
+
+    /* the common arities are passed without gathering an array */
+    static Object call0(Object callee, Token paren, InlineCache cache,
+                        Interpreter interpreter) {
+        if (LoxCallable.isDirect(callee, 0)) return ((LoxCallable) callee).call0(interpreter);
+        return call(callee, new Object[0], paren, cache, interpreter);
+    }
+
+    static Object call1(Object callee, Object a, Token paren, InlineCache cache,
+                        Interpreter interpreter) {
+        if (LoxCallable.isDirect(callee, 1)) return ((LoxCallable) callee).call1(interpreter, a);
+        return call(callee, new Object[] {a}, paren, cache, interpreter);
+    }
+
+    static Object call2(Object callee, Object a, Object b, Token paren, InlineCache cache,
+                        Interpreter interpreter) {
+        if (LoxCallable.isDirect(callee, 2)) {
+            return ((LoxCallable) callee).call2(interpreter, a, b);
+        }
+        return call(callee, new Object[] {a, b}, paren, cache, interpreter);
+    }
+
+    static Object call3(Object callee, Object a, Object b, Object c, Token paren,
+                        InlineCache cache, Interpreter interpreter) {
+        if (LoxCallable.isDirect(callee, 3)) {
+            return ((LoxCallable) callee).call3(interpreter, a, b, c);
+        }
+        return call(callee, new Object[] {a, b, c}, paren, cache, interpreter);
+    }
+
+    /* a call in tail position, which for a Lox function is not made here
+     * but handed back as a LoxFunction.TailCall */
+    static Object tailCall(Object callee, Object[] args, Token paren, InlineCache cache,
+                           Interpreter interpreter) {
+        if (callee instanceof LoxFunction function && args.length == function.arity()) {
+            return function.tailCall(args);
+        }
+        return call(callee, args, paren, cache, interpreter);
+    }
+
+    /* the method obj.method(args) names, or null if it names a field */
+    static LoxFunction method(Object object, Token name, InlineCache cache) {
+        if (object instanceof LoxInstance instance) return instance.getMethod(name, cache);
+        throw new RuntimeError(name, NOT_INSTANCE.getMsg());
+    }
+
+    /* a field is read before the arguments are evaluated */
+    static Object callee(Object object, LoxFunction method, Token name,
+                         InlineCache cache) {
+        if (method != null) return method;
+        return ((LoxInstance) object).get(name, cache);
+    }
+
+    static Object invoke(Object object, LoxFunction method, Object callee,
+                         Object[] args, Token paren, InlineCache cache,
+                         Interpreter interpreter) {
+        if (method == null) return call(callee, args, paren, cache, interpreter);
+        if (args.length != method.arity()) {
+            throw new RuntimeError(paren,
+                    String.format(INVALID_CALL_PARAMS.getMsg(),
+                            method.arity(), args.length));
+        }
+        return method.invoke(interpreter, (LoxInstance) object, args);
+    }
+
+    static Object tailInvoke(Object object, LoxFunction method, Object callee,
+                             Object[] args, Token paren, InlineCache cache,
+                             Interpreter interpreter) {
+        if (method == null) return tailCall(callee, args, paren, cache, interpreter);
+        if (args.length != method.arity()) {
+            return invoke(object, method, callee, args, paren, cache, interpreter);
+        }
+        return method.tailInvoke((LoxInstance) object, args);
+    }
+
+    static Object get(Object object, Token name, InlineCache cache) {
+        if (object instanceof LoxInstance instance) return instance.get(name, cache);
+        throw new RuntimeError(name, NOT_INSTANCE.getMsg());
+    }
+
+    /* checked before the value is evaluated, as the tree-walker does */
+    static LoxInstance instance(Object object, Token name) {
+        if (object instanceof LoxInstance instance) return instance;
+        throw new RuntimeError(name, NOT_INSTANCE_FIELDS.getMsg());
+    }
+
+    static Object set(LoxInstance instance, Object value, Token name,
+                      InlineCache cache) {
+        instance.set(name, value, cache);
+        return null;
+    }
+
+    static Object superMethod(Object superclass, Object self, Symbol method) {
+        return ((LoxClass) superclass).findMethod(method).bind((LoxInstance) self);
+    }
+
+    static LoxClass defineClass(Object superclass, Environment enclosing,
+                                Stmt.Class declaration, LoxFunction.Body[] bodies) {
+        if (declaration.getSuperclass() != null && !(superclass instanceof LoxClass)) {
+            throw new RuntimeError(declaration.getSuperclass().getName(),
+                    SUPER_MUST_BE_CLASS.getMsg());
+        }
+        Environment scope = enclosing;
+        if (superclass != null) {
+            scope = new Environment(enclosing, 1);
+            scope.define(0, superclass);
+        }
+        Map<Symbol, LoxFunction> methods = new HashMap<>();
+        for (int i = 0; i < bodies.length; i++) {
+            Stmt.Function method = declaration.getMethods().get(i);
+            Symbol name = method.getName().symbol();
+            methods.put(name, new LoxFunction(method, scope,
+                    name == INIT.getSymbol(), bodies[i]));
+        }
+        return new LoxClass(declaration.getName().lexeme(),
+                (LoxClass) superclass, methods);
+    }
+
+    static void print(Object value) {
+        System.out.println(Interpreter.stringify(value));
+    }
+
+    static Return returning(Object value) {
+        return new Return(value);
+    }
+}
@@ -0,0 +1,279 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+import org.jlox.Interpreter;
+import org.jlox.Rope;
+import org.jlox.RuntimeError;
+import org.jlox.Token;
+
+import static org.jlox.ErrorMessage.DIVIDE_BY_ZERO;
+import static org.jlox.ErrorMessage.MATCH_OPERANDS;
+import static org.jlox.ErrorMessage.OPERAND_NUMBERS;
+
+/* A binary operator starts out Uninitialized, rewrites itself to a node
+ * specialised for the operand types it first sees, and falls back to
+ * Generic for good as soon as one of those guesses is wrong. */
+abstract class BinaryNode extends ExprNode {
+    ExprNode left;
+    ExprNode right;
+    final Token operator;
+
+    BinaryNode(ExprNode left, Token operator, ExprNode right) {
+        this.left = left;
+        this.operator = operator;
+        this.right = right;
+    }
+
+    @Override
+    final Object execute(Environment environment) {
+        Object l = left.execute(environment);
+        Object r = right.execute(environment);
+        return execute(l, r);
+    }
+
+    /* finishes an evaluation whose operands are already computed */
+    abstract Object execute(Object l, Object r);
+
+    final Object generalise(Object l, Object r) {
+        return replace(new Generic(left, operator, right)).execute(l, r);
+    }
+
+    @Override
+    void adoptChildren() {
+        adopt(left);
+        adopt(right);
+    }
+
+    @Override
+    boolean replaceChild(ExprNode child, ExprNode replacement) {
+        if (left == child) {
+            left = replacement;
+            return true;
+        }
+        if (right == child) {
+            right = replacement;
+            return true;
+        }
+        return false;
+    }
+
+    static final class Uninitialized extends BinaryNode {
+        Uninitialized(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object execute(Object l, Object r) {
+            return replace(specialise(l, r)).execute(l, r);
+        }
+
+        private BinaryNode specialise(Object l, Object r) {
+            boolean doubles = l instanceof Double && r instanceof Double;
+            boolean strings = l instanceof CharSequence && r instanceof CharSequence;
+            return switch (operator.type()) {
+                case PLUS -> doubles ? new AddDoubles(left, operator, right)
+                        : strings ? new ConcatStrings(left, operator, right)
+                        : new Generic(left, operator, right);
+                case MINUS -> doubles ? new SubtractDoubles(left, operator, right)
+                        : new Generic(left, operator, right);
+                case STAR -> doubles ? new MultiplyDoubles(left, operator, right)
+                        : new Generic(left, operator, right);
+                case SLASH -> doubles ? new DivideDoubles(left, operator, right)
+                        : new Generic(left, operator, right);
+                case LESS -> doubles ? new LessDoubles(left, operator, right)
+                        : new Generic(left, operator, right);
+                case LESS_EQUAL -> doubles ? new LessEqualDoubles(left, operator, right)
+                        : new Generic(left, operator, right);
+                case GREATER -> doubles ? new GreaterDoubles(left, operator, right)
+                        : new Generic(left, operator, right);
+                case GREATER_EQUAL -> doubles ? new GreaterEqualDoubles(left, operator, right)
+                        : new Generic(left, operator, right);
+                default -> new Generic(left, operator, right);
+            };
+        }
+    }
+
+    /* an operator specialised to two numbers, which generalises on
+     * anything else */
+    abstract static class Doubles extends BinaryNode {
+        Doubles(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        final Object execute(Object l, Object r) {
+            if (l instanceof Double a && r instanceof Double b) return apply(a, b);
+            return generalise(l, r);
+        }
+
+        abstract Object apply(double a, double b);
+    }
+
+    static final class ConcatStrings extends BinaryNode {
+        ConcatStrings(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object execute(Object l, Object r) {
+            if (l instanceof CharSequence a && r instanceof CharSequence b) return Rope.concat(a, b);
+            return generalise(l, r);
+        }
+    }
+
+    static final class AddDoubles extends Doubles {
+        AddDoubles(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object apply(double a, double b) {
+            return a + b;
+        }
+    }
+
+    static final class SubtractDoubles extends Doubles {
+        SubtractDoubles(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object apply(double a, double b) {
+            return a - b;
+        }
+    }
+
+    static final class MultiplyDoubles extends Doubles {
+        MultiplyDoubles(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object apply(double a, double b) {
+            return a * b;
+        }
+    }
+
+    static final class DivideDoubles extends Doubles {
+        DivideDoubles(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object apply(double a, double b) {
+            if (a == 0 || b == 0) {
+                throw new RuntimeError(operator, DIVIDE_BY_ZERO.getMsg());
+            }
+            return a / b;
+        }
+    }
+
+    static final class LessDoubles extends Doubles {
+        LessDoubles(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object apply(double a, double b) {
+            return a < b;
+        }
+    }
+
+    static final class LessEqualDoubles extends Doubles {
+        LessEqualDoubles(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object apply(double a, double b) {
+            return a <= b;
+        }
+    }
+
+    static final class GreaterDoubles extends Doubles {
+        GreaterDoubles(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object apply(double a, double b) {
+            return a > b;
+        }
+    }
+
+    static final class GreaterEqualDoubles extends Doubles {
+        GreaterEqualDoubles(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object apply(double a, double b) {
+            return a >= b;
+        }
+    }
+
+    /* the full semantics of every operator, as in Interpreter.visitBinaryExpr */
+    static final class Generic extends BinaryNode {
+        Generic(ExprNode left, Token operator, ExprNode right) {
+            super(left, operator, right);
+        }
+
+        @Override
+        Object execute(Object l, Object r) {
+            switch (operator.type()) {
+                case PLUS -> {
+                    if (l instanceof Double a && r instanceof Double b) {
+                        return a + b;
+                    } else if ((l instanceof CharSequence || l instanceof Double) &&
+                               (r instanceof CharSequence || r instanceof Double)) {
+                        return Rope.concat(l, r);
+                    }
+                    throw new RuntimeError(operator, MATCH_OPERANDS.getMsg());
+                }
+                case BANG_EQUAL -> {
+                    return !Interpreter.isEqual(l, r);
+                }
+                case EQUAL_EQUAL -> {
+                    return Interpreter.isEqual(l, r);
+                }
+                case MINUS -> {
+                    checkNumberOperands(l, r);
+                    return (double) l - (double) r;
+                }
+                case SLASH -> {
+                    checkNumberOperands(l, r);
+                    if ((double) l == 0 || (double) r == 0) {
+                        throw new RuntimeError(operator, DIVIDE_BY_ZERO.getMsg());
+                    }
+                    return (double) l / (double) r;
+                }
+                case STAR -> {
+                    checkNumberOperands(l, r);
+                    return (double) l * (double) r;
+                }
+                case GREATER -> {
+                    checkNumberOperands(l, r);
+                    return (double) l > (double) r;
+                }
+                case GREATER_EQUAL -> {
+                    checkNumberOperands(l, r);
+                    return (double) l >= (double) r;
+                }
+                case LESS -> {
+                    checkNumberOperands(l, r);
+                    return (double) l < (double) r;
+                }
+                case LESS_EQUAL -> {
+                    checkNumberOperands(l, r);
+                    return (double) l <= (double) r;
+                }
+            }
+            return null;
+        }
+
+        private void checkNumberOperands(Object l, Object r) {
+            if (l instanceof Double && r instanceof Double) return;
+            throw new RuntimeError(operator, OPERAND_NUMBERS.getMsg());
+        }
+    }
+}
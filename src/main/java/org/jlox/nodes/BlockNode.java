@@ -0,0 +1,28 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+
+final class BlockNode extends StmtNode {
+    private final int size;
+    private final int[] released;
+    private final StmtNode[] statements;
+
+    BlockNode(int size, int[] released, StmtNode[] statements) {
+        this.size = size;
+        this.released = released;
+        this.statements = statements;
+    }
+
+    @Override
+    void execute(Environment environment) {
+        Environment scope = size == 0 ? environment : new Environment(environment, size);
+        try {
+            for (StmtNode statement : statements) {
+                statement.execute(scope);
+            }
+        } finally {
+            /* a return unwinds through here too */
+            if (released != null) scope.release(released);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+import org.jlox.InlineCache;
+import org.jlox.Interpreter;
+import org.jlox.LoxCallable;
+import org.jlox.LoxClass;
+import org.jlox.LoxFunction;
+import org.jlox.RuntimeError;
+import org.jlox.Token;
+
+import static org.jlox.ErrorMessage.INVALID_CALL;
+import static org.jlox.ErrorMessage.INVALID_CALL_PARAMS;
+
+final class CallNode extends ExprNode {
+    private final Interpreter interpreter;
+    private ExprNode callee;
+    private final Token paren;
+    private final ExprNode[] args;
+    private final InlineCache cache;
+    private final boolean tail;
+
+    CallNode(Interpreter interpreter, ExprNode callee, Token paren, ExprNode[] args,
+             InlineCache cache, boolean tail) {
+        this.interpreter = interpreter;
+        this.callee = callee;
+        this.paren = paren;
+        this.args = args;
+        this.cache = cache;
+        this.tail = tail;
+    }
+
+    /* the common arities are passed without gathering an array */
+    @Override
+    Object execute(Environment environment) {
+        Object function = callee.execute(environment);
+        if (tail) return tailCall(interpreter, function, evaluate(args, environment), paren, cache);
+        switch (args.length) {
+            case 0 -> {
+                if (LoxCallable.isDirect(function, 0)) {
+                    return ((LoxCallable) function).call0(interpreter);
+                }
+                return call(interpreter, function, new Object[0], paren, cache);
+            }
+            case 1 -> {
+                Object a = args[0].execute(environment);
+                if (LoxCallable.isDirect(function, 1)) {
+                    return ((LoxCallable) function).call1(interpreter, a);
+                }
+                return call(interpreter, function, new Object[] {a}, paren, cache);
+            }
+            case 2 -> {
+                Object a = args[0].execute(environment);
+                Object b = args[1].execute(environment);
+                if (LoxCallable.isDirect(function, 2)) {
+                    return ((LoxCallable) function).call2(interpreter, a, b);
+                }
+                return call(interpreter, function, new Object[] {a, b}, paren, cache);
+            }
+            case 3 -> {
+                Object a = args[0].execute(environment);
+                Object b = args[1].execute(environment);
+                Object c = args[2].execute(environment);
+                if (LoxCallable.isDirect(function, 3)) {
+                    return ((LoxCallable) function).call3(interpreter, a, b, c);
+                }
+                return call(interpreter, function, new Object[] {a, b, c}, paren, cache);
+            }
+            default -> {
+                return call(interpreter, function, evaluate(args, environment), paren, cache);
+            }
+        }
+    }
+
+    static Object[] evaluate(ExprNode[] args, Environment environment) {
+        Object[] values = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            values[i] = args[i].execute(environment);
+        }
+        return values;
+    }
+
+    static Object call(Interpreter interpreter, Object function, Object[] values,
+                       Token paren, InlineCache cache) {
+        if (!(function instanceof LoxCallable callable)) {
+            throw new RuntimeError(paren, INVALID_CALL.getMsg());
+        }
+        int arity = callable instanceof LoxClass clazz
+                ? clazz.arity(cache) : callable.arity();
+        if (values.length != arity) {
+            throw new RuntimeError(paren,
+                    String.format(INVALID_CALL_PARAMS.getMsg(),
+                            arity, values.length));
+        }
+        if (callable instanceof LoxClass clazz) {
+            return clazz.call(interpreter, values, cache);
+        }
+        return callable.call(interpreter, values);
+    }
+
+    /* a call in tail position, which for a Lox function is not made here
+     * but handed back as a LoxFunction.TailCall */
+    static Object tailCall(Interpreter interpreter, Object function, Object[] values,
+                           Token paren, InlineCache cache) {
+        if (function instanceof LoxFunction lox && values.length == lox.arity()) {
+            return lox.tailCall(values);
+        }
+        return call(interpreter, function, values, paren, cache);
+    }
+
+    @Override
+    void adoptChildren() {
+        adopt(callee);
+        for (ExprNode arg : args) {
+            adopt(arg);
+        }
+    }
+
+    @Override
+    boolean replaceChild(ExprNode child, ExprNode replacement) {
+        if (callee == child) {
+            callee = replacement;
+            return true;
+        }
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] == child) {
+                args[i] = replacement;
+                return true;
+            }
+        }
+        return false;
+    }
+}
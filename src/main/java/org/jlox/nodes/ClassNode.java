@@ -0,0 +1,71 @@
+package org.jlox.nodes;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jlox.Environment;
+import org.jlox.LoxClass;
+import org.jlox.LoxFunction;
+import org.jlox.RuntimeError;
+import org.jlox.Stmt;
+import org.jlox.Symbol;
+
+import static org.jlox.ErrorMessage.SUPER_MUST_BE_CLASS;
+import static org.jlox.LoxConstants.INIT;
+
+final class ClassNode extends StmtNode {
+    private final Environment globals;
+    private final Stmt.Class declaration;
+    private ExprNode superclass;
+    private final LoxFunction.Body[] methods;
+
+    ClassNode(Environment globals, Stmt.Class declaration, ExprNode superclass,
+              LoxFunction.Body[] methods) {
+        this.globals = globals;
+        this.declaration = declaration;
+        this.superclass = superclass;
+        this.methods = methods;
+    }
+
+    @Override
+    void execute(Environment environment) {
+        Object parent = null;
+        if (superclass != null) {
+            parent = superclass.execute(environment);
+            if (!(parent instanceof LoxClass)) {
+                throw new RuntimeError(declaration.getSuperclass().getName(),
+                        SUPER_MUST_BE_CLASS.getMsg());
+            }
+        }
+        define(globals, environment, declaration.getName(),
+                declaration.getSlot(), null);
+        Environment scope = environment;
+        if (parent != null) {
+            scope = new Environment(environment, 1);
+            scope.define(0, parent);
+        }
+        Map<Symbol, LoxFunction> functions = new HashMap<>();
+        for (int i = 0; i < methods.length; i++) {
+            Stmt.Function method = declaration.getMethods().get(i);
+            Symbol name = method.getName().symbol();
+            functions.put(name, new LoxFunction(method, scope,
+                    name == INIT.getSymbol(), methods[i]));
+        }
+        LoxClass clazz = new LoxClass(declaration.getName().lexeme(),
+                (LoxClass) parent, functions);
+        define(globals, environment, declaration.getName(),
+                declaration.getSlot(), clazz);
+    }
+
+    @Override
+    void adoptChildren() {
+        adopt(superclass);
+    }
+
+    @Override
+    boolean replaceChild(ExprNode child, ExprNode replacement) {
+        if (superclass != child) return false;
+        superclass = replacement;
+        return true;
+    }
+}
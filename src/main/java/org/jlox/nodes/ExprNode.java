@@ -0,0 +1,18 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+
+abstract class ExprNode extends Node {
+    abstract Object execute(Environment environment);
+
+    /* Swaps this node for the replacement in its parent. A recursive call
+     * may already have rewritten this node, in which case the replacement
+     * is left detached and only serves the evaluation in progress. */
+    final <T extends ExprNode> T replace(T replacement) {
+        if (parent != null && parent.replaceChild(this, replacement)) {
+            replacement.parent = parent;
+            replacement.adoptChildren();
+        }
+        return replacement;
+    }
+}
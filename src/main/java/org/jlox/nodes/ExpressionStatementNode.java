@@ -0,0 +1,28 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+
+final class ExpressionStatementNode extends StmtNode {
+    private ExprNode expression;
+
+    ExpressionStatementNode(ExprNode expression) {
+        this.expression = expression;
+    }
+
+    @Override
+    void execute(Environment environment) {
+        expression.execute(environment);
+    }
+
+    @Override
+    void adoptChildren() {
+        adopt(expression);
+    }
+
+    @Override
+    boolean replaceChild(ExprNode child, ExprNode replacement) {
+        if (expression != child) return false;
+        expression = replacement;
+        return true;
+    }
+}
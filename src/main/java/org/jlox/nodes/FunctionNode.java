@@ -0,0 +1,24 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+import org.jlox.LoxFunction;
+import org.jlox.Stmt;
+
+final class FunctionNode extends StmtNode {
+    private final Environment globals;
+    private final Stmt.Function declaration;
+    private final LoxFunction.Body body;
+
+    FunctionNode(Environment globals, Stmt.Function declaration, LoxFunction.Body body) {
+        this.globals = globals;
+        this.declaration = declaration;
+        this.body = body;
+    }
+
+    @Override
+    void execute(Environment environment) {
+        LoxFunction function = new LoxFunction(declaration, environment, false, body);
+        define(globals, environment, declaration.getName(),
+                declaration.getSlot(), function);
+    }
+}
@@ -0,0 +1,41 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+import org.jlox.InlineCache;
+import org.jlox.LoxInstance;
+import org.jlox.RuntimeError;
+import org.jlox.Token;
+
+import static org.jlox.ErrorMessage.NOT_INSTANCE;
+
+final class GetNode extends ExprNode {
+    private ExprNode object;
+    private final Token name;
+    private final InlineCache cache;
+
+    GetNode(ExprNode object, Token name, InlineCache cache) {
+        this.object = object;
+        this.name = name;
+        this.cache = cache;
+    }
+
+    @Override
+    Object execute(Environment environment) {
+        if (object.execute(environment) instanceof LoxInstance instance) {
+            return instance.get(name, cache);
+        }
+        throw new RuntimeError(name, NOT_INSTANCE.getMsg());
+    }
+
+    @Override
+    void adoptChildren() {
+        adopt(object);
+    }
+
+    @Override
+    boolean replaceChild(ExprNode child, ExprNode replacement) {
+        if (object != child) return false;
+        object = replacement;
+        return true;
+    }
+}
@@ -0,0 +1,20 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+import org.jlox.GlobalCell;
+import org.jlox.Token;
+
+final class GlobalReadNode extends ExprNode {
+    private final GlobalCell cell;
+    private final Token name;
+
+    GlobalReadNode(GlobalCell cell, Token name) {
+        this.cell = cell;
+        this.name = name;
+    }
+
+    @Override
+    Object execute(Environment environment) {
+        return cell.get(name);
+    }
+}
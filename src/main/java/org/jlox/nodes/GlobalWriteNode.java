@@ -0,0 +1,36 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+import org.jlox.GlobalCell;
+import org.jlox.Token;
+
+final class GlobalWriteNode extends ExprNode {
+    private final GlobalCell cell;
+    private final Token name;
+    private ExprNode value;
+
+    GlobalWriteNode(GlobalCell cell, Token name, ExprNode value) {
+        this.cell = cell;
+        this.name = name;
+        this.value = value;
+    }
+
+    @Override
+    Object execute(Environment environment) {
+        Object result = value.execute(environment);
+        cell.assign(name, result);
+        return result;
+    }
+
+    @Override
+    void adoptChildren() {
+        adopt(value);
+    }
+
+    @Override
+    boolean replaceChild(ExprNode child, ExprNode replacement) {
+        if (value != child) return false;
+        value = replacement;
+        return true;
+    }
+}
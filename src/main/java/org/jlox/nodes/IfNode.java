@@ -0,0 +1,37 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+import org.jlox.Interpreter;
+
+final class IfNode extends StmtNode {
+    private ExprNode condition;
+    private final StmtNode thenBranch;
+    private final StmtNode elseBranch;
+
+    IfNode(ExprNode condition, StmtNode thenBranch, StmtNode elseBranch) {
+        this.condition = condition;
+        this.thenBranch = thenBranch;
+        this.elseBranch = elseBranch;
+    }
+
+    @Override
+    void execute(Environment environment) {
+        if (Interpreter.isTruthy(condition.execute(environment))) {
+            thenBranch.execute(environment);
+        } else if (elseBranch != null) {
+            elseBranch.execute(environment);
+        }
+    }
+
+    @Override
+    void adoptChildren() {
+        adopt(condition);
+    }
+
+    @Override
+    boolean replaceChild(ExprNode child, ExprNode replacement) {
+        if (condition != child) return false;
+        condition = replacement;
+        return true;
+    }
+}
@@ -0,0 +1,83 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+import org.jlox.InlineCache;
+import org.jlox.Interpreter;
+import org.jlox.LoxFunction;
+import org.jlox.LoxInstance;
+import org.jlox.RuntimeError;
+import org.jlox.Token;
+
+import static org.jlox.ErrorMessage.INVALID_CALL_PARAMS;
+import static org.jlox.ErrorMessage.NOT_INSTANCE;
+
+/* obj.method(args), which invokes the method on the instance without
+ * allocating the bound method a GetNode would produce */
+final class InvokeNode extends ExprNode {
+    private final Interpreter interpreter;
+    private ExprNode object;
+    private final Token name;
+    private final InlineCache property;
+    private final Token paren;
+    private final ExprNode[] args;
+    private final InlineCache cache;
+    private final boolean tail;
+
+    InvokeNode(Interpreter interpreter, ExprNode object, Token name,
+               InlineCache property, Token paren, ExprNode[] args,
+               InlineCache cache, boolean tail) {
+        this.interpreter = interpreter;
+        this.object = object;
+        this.name = name;
+        this.property = property;
+        this.paren = paren;
+        this.args = args;
+        this.cache = cache;
+        this.tail = tail;
+    }
+
+    @Override
+    Object execute(Environment environment) {
+        if (!(object.execute(environment) instanceof LoxInstance instance)) {
+            throw new RuntimeError(name, NOT_INSTANCE.getMsg());
+        }
+        LoxFunction method = instance.getMethod(name, property);
+        if (method == null) {
+            Object function = instance.get(name, property);
+            Object[] values = CallNode.evaluate(args, environment);
+            if (tail) return CallNode.tailCall(interpreter, function, values, paren, cache);
+            return CallNode.call(interpreter, function, values, paren, cache);
+        }
+        Object[] values = CallNode.evaluate(args, environment);
+        if (values.length != method.arity()) {
+            throw new RuntimeError(paren,
+                    String.format(INVALID_CALL_PARAMS.getMsg(),
+                            method.arity(), values.length));
+        }
+        if (tail) return method.tailInvoke(instance, values);
+        return method.invoke(interpreter, instance, values);
+    }
+
+    @Override
+    void adoptChildren() {
+        adopt(object);
+        for (ExprNode arg : args) {
+            adopt(arg);
+        }
+    }
+
+    @Override
+    boolean replaceChild(ExprNode child, ExprNode replacement) {
+        if (object == child) {
+            object = replacement;
+            return true;
+        }
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] == child) {
+                args[i] = replacement;
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,16 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+
+final class LiteralNode extends ExprNode {
+    private final Object value;
+
+    LiteralNode(Object value) {
+        this.value = value;
+    }
+
+    @Override
+    Object execute(Environment environment) {
+        return value;
+    }
+}
@@ -0,0 +1,19 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+
+/* also serves 'self', which the resolver binds like any other local */
+final class LocalReadNode extends ExprNode {
+    private final int depth;
+    private final int slot;
+
+    LocalReadNode(int depth, int slot) {
+        this.depth = depth;
+        this.slot = slot;
+    }
+
+    @Override
+    Object execute(Environment environment) {
+        return environment.getAt(depth, slot);
+    }
+}
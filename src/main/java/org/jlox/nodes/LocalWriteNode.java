@@ -0,0 +1,34 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+
+final class LocalWriteNode extends ExprNode {
+    private final int depth;
+    private final int slot;
+    private ExprNode value;
+
+    LocalWriteNode(int depth, int slot, ExprNode value) {
+        this.depth = depth;
+        this.slot = slot;
+        this.value = value;
+    }
+
+    @Override
+    Object execute(Environment environment) {
+        Object result = value.execute(environment);
+        environment.assignAt(depth, slot, result);
+        return result;
+    }
+
+    @Override
+    void adoptChildren() {
+        adopt(value);
+    }
+
+    @Override
+    boolean replaceChild(ExprNode child, ExprNode replacement) {
+        if (value != child) return false;
+        value = replacement;
+        return true;
+    }
+}
@@ -0,0 +1,42 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+import org.jlox.Interpreter;
+
+final class LogicalNode extends ExprNode {
+    private ExprNode left;
+    private ExprNode right;
+    private final boolean isOr;
+
+    LogicalNode(ExprNode left, boolean isOr, ExprNode right) {
+        this.left = left;
+        this.isOr = isOr;
+        this.right = right;
+    }
+
+    @Override
+    Object execute(Environment environment) {
+        Object value = left.execute(environment);
+        if (Interpreter.isTruthy(value) == isOr) return value;
+        return right.execute(environment);
+    }
+
+    @Override
+    void adoptChildren() {
+        adopt(left);
+        adopt(right);
+    }
+
+    @Override
+    boolean replaceChild(ExprNode child, ExprNode replacement) {
+        if (left == child) {
+            left = replacement;
+            return true;
+        }
+        if (right == child) {
+            right = replacement;
+            return true;
+        }
+        return false;
+    }
+}
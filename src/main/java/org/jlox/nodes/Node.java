@@ -0,0 +1,19 @@
+package org.jlox.nodes;
+
+/* Base of the executable tree. Expression nodes may replace themselves in
+ * their parent once they have seen what kind of values flow through them,
+ * so every node with expression children knows how to swap one out. */
+abstract class Node {
+    Node parent;
+
+    /* called once the node is installed, to point its children back at it */
+    void adoptChildren() { }
+
+    boolean replaceChild(ExprNode child, ExprNode replacement) {
+        return false;
+    }
+
+    final void adopt(Node child) {
+        if (child != null) child.parent = this;
+    }
+}
@@ -0,0 +1,200 @@
+package org.jlox.nodes;
+
+import java.util.List;
+
+import org.jlox.Environment;
+import org.jlox.Expr;
+import org.jlox.Interpreter;
+import org.jlox.LoxFunction;
+import org.jlox.Stmt;
+import org.jlox.TokenType;
+
+/* Translates the resolved syntax tree into executable nodes, once. Every
+ * operator starts out uninitialized and specialises on first execution. */
+final class NodeBuilder implements Expr.Visitor<ExprNode>, Stmt.Visitor<StmtNode> {
+    private final Interpreter interpreter;
+    private final Environment globals;
+
+    NodeBuilder(Interpreter interpreter) {
+        this.interpreter = interpreter;
+        this.globals = interpreter.getGlobals();
+    }
+
+    StmtNode[] build(List<Stmt> statements) {
+        StmtNode[] nodes = new StmtNode[statements.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = build(statements.get(i));
+        }
+        return nodes;
+    }
+
+    private StmtNode build(Stmt stmt) {
+        StmtNode node = stmt.accept(this);
+        node.adoptChildren();
+        return node;
+    }
+
+    private ExprNode build(Expr expr) {
+        if (expr == null) return null;
+        ExprNode node = expr.accept(this);
+        node.adoptChildren();
+        return node;
+    }
+
+    /* shared by every closure over the declaration, so they also share
+     * what the nodes have learned */
+    private LoxFunction.Body body(Stmt.Function declaration) {
+        StmtNode[] statements = build(declaration.getBody());
+        return environment -> {
+            for (StmtNode statement : statements) {
+                statement.execute(environment);
+            }
+        };
+    }
+
+    @Override
+    public ExprNode visitAssignExpr(Expr.Assign expr) {
+        ExprNode value = build(expr.getValue());
+        if (expr.getDepth() == Environment.GLOBAL) {
+            return new GlobalWriteNode(globals.cell(expr.getName().symbol()),
+                    expr.getName(), value);
+        }
+        return new LocalWriteNode(expr.getDepth(), expr.getSlot(), value);
+    }
+
+    @Override
+    public ExprNode visitBinaryExpr(Expr.Binary expr) {
+        return new BinaryNode.Uninitialized(build(expr.getLeft()),
+                expr.getOperator(), build(expr.getRight()));
+    }
+
+    @Override
+    public ExprNode visitCallExpr(Expr.Call expr) {
+        return call(expr, false);
+    }
+
+    /* tail is set for the call a return statement ends in */
+    private ExprNode call(Expr.Call expr, boolean tail) {
+        ExprNode[] args = new ExprNode[expr.getArgs().size()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = build(expr.getArgs().get(i));
+        }
+        if (expr.getCallee() instanceof Expr.Get get) {
+            return new InvokeNode(interpreter, build(get.getObject()), get.getName(),
+                    get.getCache(), expr.getParen(), args, expr.getCache(), tail);
+        }
+        return new CallNode(interpreter, build(expr.getCallee()),
+                expr.getParen(), args, expr.getCache(), tail);
+    }
+
+    @Override
+    public ExprNode visitGroupingExpr(Expr.Grouping expr) {
+        return build(expr.getExpression());
+    }
+
+    @Override
+    public ExprNode visitGetExpr(Expr.Get expr) {
+        return new GetNode(build(expr.getObject()), expr.getName(),
+                expr.getCache());
+    }
+
+    @Override
+    public ExprNode visitLiteralExpr(Expr.Literal expr) {
+        return new LiteralNode(expr.getValue());
+    }
+
+    @Override
+    public ExprNode visitLogicalExpr(Expr.Logical expr) {
+        return new LogicalNode(build(expr.getLeft()),
+                expr.getOperator().type() == TokenType.OR,
+                build(expr.getRight()));
+    }
+
+    @Override
+    public ExprNode visitSelfExpr(Expr.Self expr) {
+        return new LocalReadNode(expr.getDepth(), expr.getSlot());
+    }
+
+    @Override
+    public ExprNode visitSetExpr(Expr.Set expr) {
+        return new SetNode(build(expr.getObject()), expr.getName(),
+                build(expr.getValue()), expr.getCache());
+    }
+
+    @Override
+    public ExprNode visitSuperExpr(Expr.Super expr) {
+        return new SuperNode(expr.getDepth(), expr.getMethod());
+    }
+
+    @Override
+    public ExprNode visitUnaryExpr(Expr.Unary expr) {
+        return new UnaryNode.Uninitialized(expr.getOperator(),
+                build(expr.getRight()));
+    }
+
+    @Override
+    public ExprNode visitVariableExpr(Expr.Variable expr) {
+        if (expr.getDepth() == Environment.GLOBAL) {
+            return new GlobalReadNode(globals.cell(expr.getName().symbol()),
+                    expr.getName());
+        }
+        return new LocalReadNode(expr.getDepth(), expr.getSlot());
+    }
+
+    @Override
+    public StmtNode visitBlockStmt(Stmt.Block stmt) {
+        return new BlockNode(stmt.getSize(), stmt.getReleased(),
+                build(stmt.getStatements()));
+    }
+
+    @Override
+    public StmtNode visitClassStmt(Stmt.Class stmt) {
+        LoxFunction.Body[] methods = new LoxFunction.Body[stmt.getMethods().size()];
+        for (int i = 0; i < methods.length; i++) {
+            methods[i] = body(stmt.getMethods().get(i));
+        }
+        return new ClassNode(globals, stmt, build(stmt.getSuperclass()), methods);
+    }
+
+    @Override
+    public StmtNode visitExpressionStmt(Stmt.Expression stmt) {
+        return new ExpressionStatementNode(build(stmt.getExpression()));
+    }
+
+    @Override
+    public StmtNode visitFunctionStmt(Stmt.Function stmt) {
+        return new FunctionNode(globals, stmt, body(stmt));
+    }
+
+    @Override
+    public StmtNode visitIfStmt(Stmt.If stmt) {
+        StmtNode elseBranch = null;
+        if (stmt.getElseBranch() != null) elseBranch = build(stmt.getElseBranch());
+        return new IfNode(build(stmt.getCondition()),
+                build(stmt.getThenBranch()), elseBranch);
+    }
+
+    @Override
+    public StmtNode visitPrintStmt(Stmt.Print stmt) {
+        return new PrintNode(build(stmt.getExpression()));
+    }
+
+    @Override
+    public StmtNode visitReturnStmt(Stmt.Return stmt) {
+        if (!stmt.getTail()) return new ReturnNode(build(stmt.getValue()));
+        ExprNode call = call((Expr.Call) stmt.getValue(), true);
+        call.adoptChildren();
+        return new ReturnNode(call);
+    }
+
+    @Override
+    public StmtNode visitVarStmt(Stmt.Var stmt) {
+        return new VarNode(globals, stmt.getName(), stmt.getSlot(),
+                build(stmt.getInitializer()));
+    }
+
+    @Override
+    public StmtNode visitWhileStmt(Stmt.While stmt) {
+        return new WhileNode(build(stmt.getCondition()), build(stmt.getBody()));
+    }
+}
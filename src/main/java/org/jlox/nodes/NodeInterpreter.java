@@ -0,0 +1,30 @@
+package org.jlox.nodes;
+
+import java.util.List;
+
+import org.jlox.Engine;
+import org.jlox.Environment;
+import org.jlox.Interpreter;
+import org.jlox.Lox;
+import org.jlox.RuntimeError;
+import org.jlox.Stmt;
+
+/* Runs programs as a tree of self-specialising nodes. Values, environments,
+ * functions and classes are the tree-walker's, so the interpreter instance
+ * only provides the globals and the context natives are called with. */
+public final class NodeInterpreter implements Engine {
+    private final Interpreter interpreter = new Interpreter();
+    private final NodeBuilder builder = new NodeBuilder(interpreter);
+
+    @Override
+    public void interpret(List<Stmt> statements) {
+        Environment globals = interpreter.getGlobals();
+        try {
+            for (StmtNode statement : builder.build(statements)) {
+                statement.execute(globals);
+            }
+        } catch (RuntimeError error) {
+            Lox.runtimeError(error);
+        }
+    }
+}
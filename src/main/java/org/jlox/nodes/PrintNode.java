@@ -0,0 +1,29 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+import org.jlox.Interpreter;
+
+final class PrintNode extends StmtNode {
+    private ExprNode expression;
+
+    PrintNode(ExprNode expression) {
+        this.expression = expression;
+    }
+
+    @Override
+    void execute(Environment environment) {
+        System.out.println(Interpreter.stringify(expression.execute(environment)));
+    }
+
+    @Override
+    void adoptChildren() {
+        adopt(expression);
+    }
+
+    @Override
+    boolean replaceChild(ExprNode child, ExprNode replacement) {
+        if (expression != child) return false;
+        expression = replacement;
+        return true;
+    }
+}
@@ -0,0 +1,29 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+import org.jlox.Return;
+
+final class ReturnNode extends StmtNode {
+    private ExprNode value;
+
+    ReturnNode(ExprNode value) {
+        this.value = value;
+    }
+
+    @Override
+    void execute(Environment environment) {
+        throw new Return(value == null ? null : value.execute(environment));
+    }
+
+    @Override
+    void adoptChildren() {
+        adopt(value);
+    }
+
+    @Override
+    boolean replaceChild(ExprNode child, ExprNode replacement) {
+        if (value != child) return false;
+        value = replacement;
+        return true;
+    }
+}
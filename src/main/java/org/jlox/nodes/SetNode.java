@@ -0,0 +1,52 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+import org.jlox.InlineCache;
+import org.jlox.LoxInstance;
+import org.jlox.RuntimeError;
+import org.jlox.Token;
+
+import static org.jlox.ErrorMessage.NOT_INSTANCE_FIELDS;
+
+final class SetNode extends ExprNode {
+    private ExprNode object;
+    private final Token name;
+    private final InlineCache cache;
+    private ExprNode value;
+
+    SetNode(ExprNode object, Token name, ExprNode value,
+            InlineCache cache) {
+        this.object = object;
+        this.name = name;
+        this.cache = cache;
+        this.value = value;
+    }
+
+    @Override
+    Object execute(Environment environment) {
+        if (!(object.execute(environment) instanceof LoxInstance instance)) {
+            throw new RuntimeError(name, NOT_INSTANCE_FIELDS.getMsg());
+        }
+        instance.set(name, value.execute(environment), cache);
+        return null;
+    }
+
+    @Override
+    void adoptChildren() {
+        adopt(object);
+        adopt(value);
+    }
+
+    @Override
+    boolean replaceChild(ExprNode child, ExprNode replacement) {
+        if (object == child) {
+            object = replacement;
+            return true;
+        }
+        if (value == child) {
+            value = replacement;
+            return true;
+        }
+        return false;
+    }
+}
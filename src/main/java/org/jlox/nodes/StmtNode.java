@@ -0,0 +1,17 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+import org.jlox.Token;
+
+abstract class StmtNode extends Node {
+    abstract void execute(Environment environment);
+
+    static void define(Environment globals, Environment environment,
+                       Token name, int slot, Object value) {
+        if (slot == Environment.GLOBAL) {
+            globals.define(name.symbol(), value);
+        } else {
+            environment.define(slot, value);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+import org.jlox.LoxClass;
+import org.jlox.LoxInstance;
+import org.jlox.Token;
+
+final class SuperNode extends ExprNode {
+    private final int depth;
+    private final Token method;
+
+    SuperNode(int depth, Token method) {
+        this.depth = depth;
+        this.method = method;
+    }
+
+    @Override
+    Object execute(Environment environment) {
+        LoxClass superclass = (LoxClass) environment.getAt(depth, 0);
+        LoxInstance object = (LoxInstance) environment.getAt(depth - 1, 0);
+        return superclass.findMethod(method.symbol()).bind(object);
+    }
+}
@@ -0,0 +1,101 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+import org.jlox.Interpreter;
+import org.jlox.RuntimeError;
+import org.jlox.Token;
+
+import static org.jlox.ErrorMessage.OPERAND_NUMBER;
+
+/* specialises the same way as BinaryNode; only negation has a typed form */
+abstract class UnaryNode extends ExprNode {
+    ExprNode operand;
+    final Token operator;
+
+    UnaryNode(Token operator, ExprNode operand) {
+        this.operator = operator;
+        this.operand = operand;
+    }
+
+    @Override
+    final Object execute(Environment environment) {
+        return execute(operand.execute(environment));
+    }
+
+    abstract Object execute(Object value);
+
+    @Override
+    void adoptChildren() {
+        adopt(operand);
+    }
+
+    @Override
+    boolean replaceChild(ExprNode child, ExprNode replacement) {
+        if (operand != child) return false;
+        operand = replacement;
+        return true;
+    }
+
+    static final class Uninitialized extends UnaryNode {
+        Uninitialized(Token operator, ExprNode operand) {
+            super(operator, operand);
+        }
+
+        @Override
+        Object execute(Object value) {
+            UnaryNode node = switch (operator.type()) {
+                case MINUS -> value instanceof Double
+                        ? new NegateDouble(operator, operand)
+                        : new Generic(operator, operand);
+                case BANG -> new Not(operator, operand);
+                default -> new Generic(operator, operand);
+            };
+            return replace(node).execute(value);
+        }
+    }
+
+    static final class NegateDouble extends UnaryNode {
+        NegateDouble(Token operator, ExprNode operand) {
+            super(operator, operand);
+        }
+
+        @Override
+        Object execute(Object value) {
+            if (value instanceof Double d) return -d;
+            return replace(new Generic(operator, operand)).execute(value);
+        }
+    }
+
+    static final class Not extends UnaryNode {
+        Not(Token operator, ExprNode operand) {
+            super(operator, operand);
+        }
+
+        @Override
+        Object execute(Object value) {
+            return !Interpreter.isTruthy(value);
+        }
+    }
+
+    static final class Generic extends UnaryNode {
+        Generic(Token operator, ExprNode operand) {
+            super(operator, operand);
+        }
+
+        @Override
+        Object execute(Object value) {
+            switch (operator.type()) {
+                case MINUS -> {
+                    if (!(value instanceof Double)) {
+                        throw new RuntimeError(operator, OPERAND_NUMBER.getMsg());
+                    }
+                    return -(double) value;
+                }
+                case BANG -> {
+                    return !Interpreter.isTruthy(value);
+                }
+            }
+            return null;
+        }
+    }
+}
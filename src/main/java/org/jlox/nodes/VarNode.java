@@ -0,0 +1,36 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+import org.jlox.Token;
+
+final class VarNode extends StmtNode {
+    private final Environment globals;
+    private final Token name;
+    private final int slot;
+    private ExprNode initializer;
+
+    VarNode(Environment globals, Token name, int slot, ExprNode initializer) {
+        this.globals = globals;
+        this.name = name;
+        this.slot = slot;
+        this.initializer = initializer;
+    }
+
+    @Override
+    void execute(Environment environment) {
+        Object value = initializer == null ? null : initializer.execute(environment);
+        define(globals, environment, name, slot, value);
+    }
+
+    @Override
+    void adoptChildren() {
+        adopt(initializer);
+    }
+
+    @Override
+    boolean replaceChild(ExprNode child, ExprNode replacement) {
+        if (initializer != child) return false;
+        initializer = replacement;
+        return true;
+    }
+}
@@ -0,0 +1,33 @@
+package org.jlox.nodes;
+
+import org.jlox.Environment;
+import org.jlox.Interpreter;
+
+final class WhileNode extends StmtNode {
+    private ExprNode condition;
+    private final StmtNode body;
+
+    WhileNode(ExprNode condition, StmtNode body) {
+        this.condition = condition;
+        this.body = body;
+    }
+
+    @Override
+    void execute(Environment environment) {
+        while (Interpreter.isTruthy(condition.execute(environment))) {
+            body.execute(environment);
+        }
+    }
+
+    @Override
+    void adoptChildren() {
+        adopt(condition);
+    }
+
+    @Override
+    boolean replaceChild(ExprNode child, ExprNode replacement) {
+        if (condition != child) return false;
+        condition = replacement;
+        return true;
+    }
+}
@@ -0,0 +1,9 @@
+package org.jlox.vm;
+
+/* frames are preallocated by the VM and reused, so a call only
+ * overwrites these fields instead of allocating */
+final class CallFrame {
+    ObjClosure closure;
+    int ip;
+    int base;
+}
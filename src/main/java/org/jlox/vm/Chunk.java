@@ -0,0 +1,88 @@
+package org.jlox.vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class Chunk {
+    private byte[] code = new byte[64];
+    private int count = 0;
+
+    private final List<Object> constantPool = new ArrayList<>();
+    private final Map<Object, Integer> constantIndices = new HashMap<>();
+    private Object[] constants = new Object[0];
+
+    /* run-length line table: lines[i] covers code from lineStarts[i] on */
+    private int[] lineStarts = new int[8];
+    private int[] lines = new int[8];
+    private int lineCount = 0;
+
+    void write(byte b, int line) {
+        if (count == code.length) {
+            code = Arrays.copyOf(code, count * 2);
+        }
+        code[count] = b;
+        if (lineCount == 0 || lines[lineCount - 1] != line) {
+            if (lineCount == lines.length) {
+                lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+                lines = Arrays.copyOf(lines, lineCount * 2);
+            }
+            lineStarts[lineCount] = count;
+            lines[lineCount] = line;
+            lineCount++;
+        }
+        count++;
+    }
+
+    void patch(int offset, byte b) {
+        code[offset] = b;
+    }
+
+    /* numbers and names are pooled, every other constant gets its own entry */
+    int addConstant(Object value) {
+        boolean pooled = value instanceof Double || value instanceof String;
+        if (pooled) {
+            Integer index = constantIndices.get(value);
+            if (index != null) return index;
+        }
+        constantPool.add(value);
+        int index = constantPool.size() - 1;
+        if (pooled) constantIndices.put(value, index);
+        return index;
+    }
+
+    int count() {
+        return count;
+    }
+
+    byte[] code() {
+        return code;
+    }
+
+    Object[] constants() {
+        return constants;
+    }
+
+    int getLine(int offset) {
+        int low = 0;
+        int high = lineCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (lineStarts[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return lines[low];
+    }
+
+    /* trims the code and freezes the constant pool once compilation ends */
+    void finish() {
+        code = Arrays.copyOf(code, count);
+        constants = constantPool.toArray();
+        constantIndices.clear();
+    }
+}
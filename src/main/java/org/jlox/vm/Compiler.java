@@ -0,0 +1,549 @@
+package org.jlox.vm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jlox.ErrorMessage;
+import org.jlox.Expr;
+import org.jlox.Lox;
+import org.jlox.Stmt;
+import org.jlox.Token;
+import org.jlox.TokenType;
+
+import static org.jlox.ErrorMessage.*;
+import static org.jlox.LoxConstants.*;
+
+/* Walks an already resolved syntax tree once and emits a chunk per
+ * function. Locals and upvalues are laid out on the VM stack the same way
+ * clox does it, so the resolver's environment slots are not used here. */
+final class Compiler implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    private static final int MAX_LOCALS = 256;
+    private static final int MAX_UPVALUES = 256;
+    private static final int MAX_CONSTANTS = 65536;
+    private static final int MAX_JUMP = 65535;
+
+    private enum FunctionType {
+        SCRIPT,
+        FUNCTION,
+        INITIALISER,
+        METHOD
+    }
+
+    private static final class Local {
+        private final String name;
+        private final int depth;
+        private boolean isCaptured = false;
+
+        Local(String name, int depth) {
+            this.name = name;
+            this.depth = depth;
+        }
+    }
+
+    private record Upvalue(int index, boolean isLocal) { }
+
+    private static final class FunctionState {
+        private final FunctionState enclosing;
+        private final ObjFunction function;
+        private final FunctionType type;
+        private final List<Local> locals = new ArrayList<>();
+        private final List<Upvalue> upvalues = new ArrayList<>();
+        private int scopeDepth = 0;
+
+        FunctionState(FunctionState enclosing, ObjFunction function,
+                      FunctionType type) {
+            this.enclosing = enclosing;
+            this.function = function;
+            this.type = type;
+            /* slot zero holds the callee, or the receiver inside methods */
+            boolean isMethod = type == FunctionType.METHOD ||
+                               type == FunctionType.INITIALISER;
+            locals.add(new Local(isMethod ? SELF.getName() : "", 0));
+        }
+    }
+
+    private FunctionState current;
+    private int line = 1;
+    private boolean hadError = false;
+
+    /* returns null when the program doesn't fit the bytecode format */
+    ObjFunction compile(List<Stmt> statements) {
+        current = new FunctionState(null, new ObjFunction(null, 0),
+                FunctionType.SCRIPT);
+        for (Stmt statement : statements) {
+            compile(statement);
+        }
+        ObjFunction script = endFunction();
+        return hadError ? null : script;
+    }
+
+    private void compile(Stmt stmt) {
+        stmt.accept(this);
+    }
+
+    private void compile(Expr expr) {
+        expr.accept(this);
+    }
+
+    private Chunk chunk() {
+        return current.function.chunk;
+    }
+
+    private void error(ErrorMessage message) {
+        Lox.error(line, message.getMsg());
+        hadError = true;
+    }
+
+    private void emit(byte b) {
+        chunk().write(b, line);
+    }
+
+    private void emit(byte op, int operand) {
+        emit(op);
+        emit((byte) operand);
+    }
+
+    private void emitShort(int value) {
+        emit((byte) ((value >> 8) & 0xff));
+        emit((byte) (value & 0xff));
+    }
+
+    private int makeConstant(Object value) {
+        int constant = chunk().addConstant(value);
+        if (constant >= MAX_CONSTANTS) {
+            error(CONSTANT_LIMIT);
+            return 0;
+        }
+        return constant;
+    }
+
+    private void emitConstant(byte op, Object value) {
+        emit(op);
+        emitShort(makeConstant(value));
+    }
+
+    private int emitJump(byte op) {
+        emit(op);
+        emitShort(0xffff);
+        return chunk().count() - 2;
+    }
+
+    private void patchJump(int offset) {
+        int jump = chunk().count() - offset - 2;
+        if (jump > MAX_JUMP) error(JUMP_LIMIT);
+        chunk().patch(offset, (byte) ((jump >> 8) & 0xff));
+        chunk().patch(offset + 1, (byte) (jump & 0xff));
+    }
+
+    private void emitLoop(int loopStart) {
+        emit(OpCode.LOOP);
+        int offset = chunk().count() - loopStart + 2;
+        if (offset > MAX_JUMP) error(LOOP_LIMIT);
+        emitShort(offset);
+    }
+
+    private void emitReturn() {
+        if (current.type == FunctionType.INITIALISER) {
+            emit(OpCode.GET_LOCAL, 0);
+        } else {
+            emit(OpCode.NIL);
+        }
+        emit(OpCode.RETURN);
+    }
+
+    private ObjFunction endFunction() {
+        emitReturn();
+        ObjFunction function = current.function;
+        function.upvalueCount = current.upvalues.size();
+        function.chunk.finish();
+        return function;
+    }
+
+    private void beginScope() {
+        current.scopeDepth++;
+    }
+
+    private void endScope() {
+        current.scopeDepth--;
+        List<Local> locals = current.locals;
+        while (!locals.isEmpty() &&
+               locals.get(locals.size() - 1).depth > current.scopeDepth) {
+            Local local = locals.remove(locals.size() - 1);
+            emit(local.isCaptured ? OpCode.CLOSE_UPVALUE : OpCode.POP);
+        }
+    }
+
+    private void addLocal(String name) {
+        if (current.locals.size() == MAX_LOCALS) {
+            error(LOCAL_LIMIT);
+            return;
+        }
+        current.locals.add(new Local(name, current.scopeDepth));
+    }
+
+    /* the value being bound is already on top of the stack */
+    private void defineVariable(Token name) {
+        if (current.scopeDepth > 0) {
+            addLocal(name.lexeme());
+        } else {
+            emitConstant(OpCode.DEFINE_GLOBAL, name.lexeme());
+        }
+    }
+
+    private static int resolveLocal(FunctionState state, String name) {
+        for (int i = state.locals.size() - 1; i >= 0; i--) {
+            if (state.locals.get(i).name.equals(name)) return i;
+        }
+        return -1;
+    }
+
+    private int resolveUpvalue(FunctionState state, String name) {
+        if (state.enclosing == null) return -1;
+        int local = resolveLocal(state.enclosing, name);
+        if (local != -1) {
+            state.enclosing.locals.get(local).isCaptured = true;
+            return addUpvalue(state, local, true);
+        }
+        int upvalue = resolveUpvalue(state.enclosing, name);
+        if (upvalue != -1) {
+            return addUpvalue(state, upvalue, false);
+        }
+        return -1;
+    }
+
+    private int addUpvalue(FunctionState state, int index, boolean isLocal) {
+        Upvalue upvalue = new Upvalue(index, isLocal);
+        int existing = state.upvalues.indexOf(upvalue);
+        if (existing != -1) return existing;
+        if (state.upvalues.size() == MAX_UPVALUES) {
+            error(UPVALUE_LIMIT);
+            return 0;
+        }
+        state.upvalues.add(upvalue);
+        return state.upvalues.size() - 1;
+    }
+
+    private void getVariable(String name) {
+        int arg = resolveLocal(current, name);
+        if (arg != -1) {
+            emit(OpCode.GET_LOCAL, arg);
+        } else if ((arg = resolveUpvalue(current, name)) != -1) {
+            emit(OpCode.GET_UPVALUE, arg);
+        } else {
+            emitConstant(OpCode.GET_GLOBAL, name);
+        }
+    }
+
+    private void setVariable(String name) {
+        int arg = resolveLocal(current, name);
+        if (arg != -1) {
+            emit(OpCode.SET_LOCAL, arg);
+        } else if ((arg = resolveUpvalue(current, name)) != -1) {
+            emit(OpCode.SET_UPVALUE, arg);
+        } else {
+            emitConstant(OpCode.SET_GLOBAL, name);
+        }
+    }
+
+    private void function(Stmt.Function declaration, FunctionType type) {
+        FunctionState state = new FunctionState(current,
+                new ObjFunction(declaration.getName().lexeme(),
+                        declaration.getParams().size()),
+                type);
+        current = state;
+        beginScope();
+        for (Token param : declaration.getParams()) {
+            addLocal(param.lexeme());
+        }
+        for (Stmt statement : declaration.getBody()) {
+            compile(statement);
+        }
+        ObjFunction function = endFunction();
+        current = state.enclosing;
+
+        line = declaration.getName().line();
+        emitConstant(OpCode.CLOSURE, function);
+        for (Upvalue upvalue : state.upvalues) {
+            emit((byte) (upvalue.isLocal() ? 1 : 0));
+            emit((byte) upvalue.index());
+        }
+    }
+
+    private void arguments(List<Expr> args) {
+        for (Expr arg : args) {
+            compile(arg);
+        }
+    }
+
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        compile(expr.getValue());
+        line = expr.getName().line();
+        setVariable(expr.getName().lexeme());
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        compile(expr.getLeft());
+        compile(expr.getRight());
+        line = expr.getOperator().line();
+        switch (expr.getOperator().type()) {
+            case PLUS -> emit(OpCode.ADD);
+            case MINUS -> emit(OpCode.SUBTRACT);
+            case STAR -> emit(OpCode.MULTIPLY);
+            case SLASH -> emit(OpCode.DIVIDE);
+            case EQUAL_EQUAL -> emit(OpCode.EQUAL);
+            case BANG_EQUAL -> emit(OpCode.NOT_EQUAL);
+            case GREATER -> emit(OpCode.GREATER);
+            case GREATER_EQUAL -> emit(OpCode.GREATER_EQUAL);
+            case LESS -> emit(OpCode.LESS);
+            case LESS_EQUAL -> emit(OpCode.LESS_EQUAL);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitCallExpr(Expr.Call expr) {
+        call(expr, false);
+        return null;
+    }
+
+    /* tail is set for the call a return statement ends in */
+    private void call(Expr.Call expr, boolean tail) {
+        int argCount = expr.getArgs().size();
+        if (expr.getCallee() instanceof Expr.Get get) {
+            compile(get.getObject());
+            arguments(expr.getArgs());
+            line = expr.getParen().line();
+            emitConstant(tail ? OpCode.TAIL_INVOKE : OpCode.INVOKE,
+                    get.getName().lexeme());
+            emit((byte) argCount);
+        } else if (expr.getCallee() instanceof Expr.Super superExpr) {
+            line = superExpr.getKeyword().line();
+            getVariable(SELF.getName());
+            arguments(expr.getArgs());
+            getVariable(SUPER.getName());
+            line = expr.getParen().line();
+            emitConstant(tail ? OpCode.TAIL_SUPER_INVOKE : OpCode.SUPER_INVOKE,
+                    superExpr.getMethod().lexeme());
+            emit((byte) argCount);
+        } else {
+            compile(expr.getCallee());
+            arguments(expr.getArgs());
+            line = expr.getParen().line();
+            emit(tail ? OpCode.TAIL_CALL : OpCode.CALL, argCount);
+        }
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        compile(expr.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visitGetExpr(Expr.Get expr) {
+        compile(expr.getObject());
+        line = expr.getName().line();
+        emitConstant(OpCode.GET_PROPERTY, expr.getName().lexeme());
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        Object value = expr.getValue();
+        if (value == null) {
+            emit(OpCode.NIL);
+        } else if (value.equals(true)) {
+            emit(OpCode.TRUE);
+        } else if (value.equals(false)) {
+            emit(OpCode.FALSE);
+        } else {
+            emitConstant(OpCode.CONSTANT, value);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        compile(expr.getLeft());
+        if (expr.getOperator().type() == TokenType.OR) {
+            int elseJump = emitJump(OpCode.JUMP_IF_FALSE);
+            int endJump = emitJump(OpCode.JUMP);
+            patchJump(elseJump);
+            emit(OpCode.POP);
+            compile(expr.getRight());
+            patchJump(endJump);
+        } else {
+            int endJump = emitJump(OpCode.JUMP_IF_FALSE);
+            emit(OpCode.POP);
+            compile(expr.getRight());
+            patchJump(endJump);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitSelfExpr(Expr.Self expr) {
+        line = expr.getKeyword().line();
+        getVariable(SELF.getName());
+        return null;
+    }
+
+    @Override
+    public Void visitSetExpr(Expr.Set expr) {
+        compile(expr.getObject());
+        compile(expr.getValue());
+        line = expr.getName().line();
+        emitConstant(OpCode.SET_PROPERTY, expr.getName().lexeme());
+        return null;
+    }
+
+    @Override
+    public Void visitSuperExpr(Expr.Super expr) {
+        line = expr.getKeyword().line();
+        getVariable(SELF.getName());
+        getVariable(SUPER.getName());
+        emitConstant(OpCode.GET_SUPER, expr.getMethod().lexeme());
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        compile(expr.getRight());
+        line = expr.getOperator().line();
+        switch (expr.getOperator().type()) {
+            case MINUS -> emit(OpCode.NEGATE);
+            case BANG -> emit(OpCode.NOT);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        line = expr.getName().line();
+        getVariable(expr.getName().lexeme());
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        beginScope();
+        for (Stmt statement : stmt.getStatements()) {
+            compile(statement);
+        }
+        endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitClassStmt(Stmt.Class stmt) {
+        Token name = stmt.getName();
+        line = name.line();
+        emitConstant(OpCode.CLASS, name.lexeme());
+        defineVariable(name);
+
+        boolean hasSuperclass = stmt.getSuperclass() != null;
+        if (hasSuperclass) {
+            compile(stmt.getSuperclass());
+            beginScope();
+            addLocal(SUPER.getName());
+            getVariable(name.lexeme());
+            line = stmt.getSuperclass().getName().line();
+            emit(OpCode.INHERIT);
+        }
+        getVariable(name.lexeme());
+        for (Stmt.Function method : stmt.getMethods()) {
+            FunctionType type = FunctionType.METHOD;
+            if (method.getName().lexeme().equals(INIT.getName())) {
+                type = FunctionType.INITIALISER;
+            }
+            function(method, type);
+            emitConstant(OpCode.METHOD, method.getName().lexeme());
+        }
+        emit(OpCode.POP);
+        if (hasSuperclass) endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        compile(stmt.getExpression());
+        emit(OpCode.POP);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(Stmt.Function stmt) {
+        /* a local function is in scope inside its own body */
+        if (current.scopeDepth > 0) {
+            addLocal(stmt.getName().lexeme());
+            function(stmt, FunctionType.FUNCTION);
+        } else {
+            function(stmt, FunctionType.FUNCTION);
+            defineVariable(stmt.getName());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        compile(stmt.getCondition());
+        int thenJump = emitJump(OpCode.JUMP_IF_FALSE);
+        emit(OpCode.POP);
+        compile(stmt.getThenBranch());
+        int elseJump = emitJump(OpCode.JUMP);
+        patchJump(thenJump);
+        emit(OpCode.POP);
+        if (stmt.getElseBranch() != null) compile(stmt.getElseBranch());
+        patchJump(elseJump);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        compile(stmt.getExpression());
+        emit(OpCode.PRINT);
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStmt(Stmt.Return stmt) {
+        line = stmt.getKeyword().line();
+        if (stmt.getValue() == null) {
+            emitReturn();
+        } else if (stmt.getTail()) {
+            call((Expr.Call) stmt.getValue(), true);
+        } else {
+            compile(stmt.getValue());
+            emit(OpCode.RETURN);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        if (stmt.getInitializer() != null) {
+            compile(stmt.getInitializer());
+        } else {
+            emit(OpCode.NIL);
+        }
+        line = stmt.getName().line();
+        defineVariable(stmt.getName());
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        int loopStart = chunk().count();
+        compile(stmt.getCondition());
+        int exitJump = emitJump(OpCode.JUMP_IF_FALSE);
+        emit(OpCode.POP);
+        compile(stmt.getBody());
+        emitLoop(loopStart);
+        patchJump(exitJump);
+        emit(OpCode.POP);
+        return null;
+    }
+}
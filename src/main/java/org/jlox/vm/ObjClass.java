@@ -0,0 +1,19 @@
+package org.jlox.vm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+final class ObjClass {
+    final String name;
+    final Map<String, ObjClosure> methods = new HashMap<>();
+    ObjClosure initialiser;
+
+    ObjClass(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
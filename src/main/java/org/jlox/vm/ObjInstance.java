@@ -0,0 +1,18 @@
+package org.jlox.vm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+final class ObjInstance {
+    final ObjClass clazz;
+    final Map<String, Object> fields = new HashMap<>();
+
+    ObjInstance(ObjClass clazz) {
+        this.clazz = clazz;
+    }
+
+    @Override
+    public String toString() {
+        return clazz.name + " instance";
+    }
+}
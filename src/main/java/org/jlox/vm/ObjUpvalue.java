@@ -0,0 +1,30 @@
+package org.jlox.vm;
+
+/* While open, location is the VM stack and index the captured slot. Closing
+ * moves the value into a one-element array of its own, so reads and writes
+ * never need to check which state the upvalue is in. */
+final class ObjUpvalue {
+    final int slot;
+    Object[] location;
+    int index;
+    ObjUpvalue next;
+
+    ObjUpvalue(Object[] stack, int slot) {
+        this.slot = slot;
+        this.location = stack;
+        this.index = slot;
+    }
+
+    Object get() {
+        return location[index];
+    }
+
+    void set(Object value) {
+        location[index] = value;
+    }
+
+    void close() {
+        location = new Object[] { location[index] };
+        index = 0;
+    }
+}
@@ -0,0 +1,70 @@
+package org.jlox.vm;
+
+/* byte constants rather than an enum, so the dispatch loop can switch on
+ * the raw instruction without going through ordinal() */
+final class OpCode {
+    /* operands: u16 constant index */
+    static final byte CONSTANT = 0;
+    static final byte NIL = 1;
+    static final byte TRUE = 2;
+    static final byte FALSE = 3;
+    static final byte POP = 4;
+
+    /* operands: u8 stack slot or upvalue index */
+    static final byte GET_LOCAL = 5;
+    static final byte SET_LOCAL = 6;
+    static final byte GET_UPVALUE = 7;
+    static final byte SET_UPVALUE = 8;
+
+    /* operands: u16 constant index of the name */
+    static final byte GET_GLOBAL = 9;
+    static final byte DEFINE_GLOBAL = 10;
+    static final byte SET_GLOBAL = 11;
+    static final byte GET_PROPERTY = 12;
+    static final byte SET_PROPERTY = 13;
+    static final byte GET_SUPER = 14;
+
+    static final byte EQUAL = 15;
+    static final byte NOT_EQUAL = 16;
+    static final byte GREATER = 17;
+    static final byte GREATER_EQUAL = 18;
+    static final byte LESS = 19;
+    static final byte LESS_EQUAL = 20;
+    static final byte ADD = 21;
+    static final byte SUBTRACT = 22;
+    static final byte MULTIPLY = 23;
+    static final byte DIVIDE = 24;
+    static final byte NOT = 25;
+    static final byte NEGATE = 26;
+    static final byte PRINT = 27;
+
+    /* operands: u16 jump offset */
+    static final byte JUMP = 28;
+    static final byte JUMP_IF_FALSE = 29;
+    static final byte LOOP = 30;
+
+    /* operands: u8 argument count */
+    static final byte CALL = 31;
+    /* operands: u16 constant index of the method name, u8 argument count */
+    static final byte INVOKE = 32;
+    static final byte SUPER_INVOKE = 33;
+    /* operands: u16 constant index of the function, then a u8 pair of
+     * (is local, index) for each of its upvalues */
+    static final byte CLOSURE = 34;
+    static final byte CLOSE_UPVALUE = 35;
+    static final byte RETURN = 36;
+
+    /* operands: u16 constant index of the name */
+    static final byte CLASS = 37;
+    static final byte INHERIT = 38;
+    static final byte METHOD = 39;
+
+    /* the calls a return statement ends in, with the operands of CALL,
+     * INVOKE and SUPER_INVOKE, which run in the frame of the function
+     * making them */
+    static final byte TAIL_CALL = 40;
+    static final byte TAIL_INVOKE = 41;
+    static final byte TAIL_SUPER_INVOKE = 42;
+
+    private OpCode() { }
+}
@@ -0,0 +1,451 @@
+package org.jlox.vm;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jlox.Engine;
+import org.jlox.Interpreter;
+import org.jlox.Lox;
+import org.jlox.Rope;
+import org.jlox.RuntimeError;
+import org.jlox.Stmt;
+
+import static org.jlox.ErrorMessage.*;
+import static org.jlox.LoxConstants.INIT;
+
+public final class VM implements Engine {
+    private static final int FRAMES_MAX = 1024;
+    private static final int STACK_MAX = FRAMES_MAX * 256;
+
+    /* thrown inside the dispatch loop, which knows the line to report */
+    private static final class VMError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        VMError(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private final Object[] stack = new Object[STACK_MAX];
+    private int sp = 0;
+    private final CallFrame[] frames = new CallFrame[FRAMES_MAX];
+    private int frameCount = 0;
+    private final Map<String, Object> globals = new HashMap<>();
+    private ObjUpvalue openUpvalues = null;
+
+    public VM() {
+        for (int i = 0; i < FRAMES_MAX; i++) {
+            frames[i] = new CallFrame();
+        }
+        globals.put("clock", new ObjNative(0,
+                (stack, args) -> (double) System.currentTimeMillis() / 1000.0));
+    }
+
+    @Override
+    public void interpret(List<Stmt> statements) {
+        ObjFunction script = new Compiler().compile(statements);
+        if (script == null) return;
+        ObjClosure closure = new ObjClosure(script);
+        push(closure);
+        call(closure, 0);
+        try {
+            run();
+        } catch (RuntimeError error) {
+            Lox.runtimeError(error);
+            resetStack();
+        }
+    }
+
+    private void run() {
+        final Object[] stack = this.stack;
+        CallFrame frame = null;
+        int ip = 0;
+        try {
+            /* the outer loop reloads the cached frame state after a call
+             * or return has switched frames */
+            frames:
+            for (;;) {
+                frame = frames[frameCount - 1];
+                final byte[] code = frame.closure.function.chunk.code();
+                final Object[] constants = frame.closure.function.chunk.constants();
+                final ObjUpvalue[] upvalues = frame.closure.upvalues;
+                final int base = frame.base;
+                ip = frame.ip;
+                for (;;) {
+                    switch (code[ip++]) {
+                        case OpCode.CONSTANT -> {
+                            stack[sp++] = constants[readShort(code, ip)];
+                            ip += 2;
+                        }
+                        case OpCode.NIL -> stack[sp++] = null;
+                        case OpCode.TRUE -> stack[sp++] = true;
+                        case OpCode.FALSE -> stack[sp++] = false;
+                        case OpCode.POP -> sp--;
+                        case OpCode.GET_LOCAL -> stack[sp++] = stack[base + (code[ip++] & 0xff)];
+                        case OpCode.SET_LOCAL -> stack[base + (code[ip++] & 0xff)] = stack[sp - 1];
+                        case OpCode.GET_UPVALUE -> stack[sp++] = upvalues[code[ip++] & 0xff].get();
+                        case OpCode.SET_UPVALUE -> upvalues[code[ip++] & 0xff].set(stack[sp - 1]);
+                        case OpCode.GET_GLOBAL -> {
+                            String name = (String) constants[readShort(code, ip)];
+                            ip += 2;
+                            Object value = globals.get(name);
+                            if (value == null && !globals.containsKey(name)) {
+                                throw error(String.format(UNDEFINED_VARIABLE.getMsg(), name));
+                            }
+                            stack[sp++] = value;
+                        }
+                        case OpCode.DEFINE_GLOBAL -> {
+                            globals.put((String) constants[readShort(code, ip)], stack[--sp]);
+                            ip += 2;
+                        }
+                        case OpCode.SET_GLOBAL -> {
+                            String name = (String) constants[readShort(code, ip)];
+                            ip += 2;
+                            if (!globals.containsKey(name)) {
+                                throw error(String.format(UNDEFINED_VARIABLE.getMsg(), name));
+                            }
+                            globals.put(name, stack[sp - 1]);
+                        }
+                        case OpCode.GET_PROPERTY -> {
+                            String name = (String) constants[readShort(code, ip)];
+                            ip += 2;
+                            if (!(stack[sp - 1] instanceof ObjInstance instance)) {
+                                throw error(NOT_INSTANCE.getMsg());
+                            }
+                            Object value = instance.fields.get(name);
+                            if (value != null || instance.fields.containsKey(name)) {
+                                stack[sp - 1] = value;
+                            } else {
+                                bindMethod(instance.clazz, name);
+                            }
+                        }
+                        case OpCode.SET_PROPERTY -> {
+                            String name = (String) constants[readShort(code, ip)];
+                            ip += 2;
+                            if (!(stack[sp - 2] instanceof ObjInstance instance)) {
+                                throw error(NOT_INSTANCE_FIELDS.getMsg());
+                            }
+                            instance.fields.put(name, stack[sp - 1]);
+                            /* assigning a field evaluates to nil, as in the tree-walker */
+                            sp -= 2;
+                            stack[sp++] = null;
+                        }
+                        case OpCode.GET_SUPER -> {
+                            String name = (String) constants[readShort(code, ip)];
+                            ip += 2;
+                            bindMethod((ObjClass) stack[--sp], name);
+                        }
+                        case OpCode.EQUAL -> {
+                            sp--;
+                            stack[sp - 1] = Interpreter.isEqual(stack[sp - 1], stack[sp]);
+                        }
+                        case OpCode.NOT_EQUAL -> {
+                            sp--;
+                            stack[sp - 1] = !Interpreter.isEqual(stack[sp - 1], stack[sp]);
+                        }
+                        case OpCode.GREATER -> {
+                            checkNumberOperands();
+                            sp--;
+                            stack[sp - 1] = (double) stack[sp - 1] > (double) stack[sp];
+                        }
+                        case OpCode.GREATER_EQUAL -> {
+                            checkNumberOperands();
+                            sp--;
+                            stack[sp - 1] = (double) stack[sp - 1] >= (double) stack[sp];
+                        }
+                        case OpCode.LESS -> {
+                            checkNumberOperands();
+                            sp--;
+                            stack[sp - 1] = (double) stack[sp - 1] < (double) stack[sp];
+                        }
+                        case OpCode.LESS_EQUAL -> {
+                            checkNumberOperands();
+                            sp--;
+                            stack[sp - 1] = (double) stack[sp - 1] <= (double) stack[sp];
+                        }
+                        case OpCode.ADD -> {
+                            Object right = stack[--sp];
+                            Object left = stack[sp - 1];
+                            if (left instanceof Double l && right instanceof Double r) {
+                                stack[sp - 1] = l + r;
+                            } else if ((left instanceof CharSequence || left instanceof Double) &&
+                                       (right instanceof CharSequence || right instanceof Double)) {
+                                stack[sp - 1] = Rope.concat(left, right);
+                            } else {
+                                throw error(MATCH_OPERANDS.getMsg());
+                            }
+                        }
+                        case OpCode.SUBTRACT -> {
+                            checkNumberOperands();
+                            sp--;
+                            stack[sp - 1] = (double) stack[sp - 1] - (double) stack[sp];
+                        }
+                        case OpCode.MULTIPLY -> {
+                            checkNumberOperands();
+                            sp--;
+                            stack[sp - 1] = (double) stack[sp - 1] * (double) stack[sp];
+                        }
+                        case OpCode.DIVIDE -> {
+                            checkNumberOperands();
+                            sp--;
+                            double left = (double) stack[sp - 1];
+                            double right = (double) stack[sp];
+                            if (left == 0 || right == 0) {
+                                throw error(DIVIDE_BY_ZERO.getMsg());
+                            }
+                            stack[sp - 1] = left / right;
+                        }
+                        case OpCode.NOT -> stack[sp - 1] = !Interpreter.isTruthy(stack[sp - 1]);
+                        case OpCode.NEGATE -> {
+                            if (!(stack[sp - 1] instanceof Double value)) {
+                                throw error(OPERAND_NUMBER.getMsg());
+                            }
+                            stack[sp - 1] = -value;
+                        }
+                        case OpCode.PRINT -> System.out.println(Interpreter.stringify(stack[--sp]));
+                        case OpCode.JUMP -> ip += 2 + readShort(code, ip);
+                        case OpCode.JUMP_IF_FALSE -> {
+                            if (Interpreter.isTruthy(stack[sp - 1])) {
+                                ip += 2;
+                            } else {
+                                ip += 2 + readShort(code, ip);
+                            }
+                        }
+                        case OpCode.LOOP -> ip += 2 - readShort(code, ip);
+                        case OpCode.CALL -> {
+                            int argCount = code[ip++] & 0xff;
+                            frame.ip = ip;
+                            callValue(stack[sp - argCount - 1], argCount);
+                            continue frames;
+                        }
+                        case OpCode.INVOKE -> {
+                            String name = (String) constants[readShort(code, ip)];
+                            int argCount = code[ip + 2] & 0xff;
+                            ip += 3;
+                            frame.ip = ip;
+                            invoke(name, argCount);
+                            continue frames;
+                        }
+                        case OpCode.SUPER_INVOKE -> {
+                            String name = (String) constants[readShort(code, ip)];
+                            int argCount = code[ip + 2] & 0xff;
+                            ip += 3;
+                            frame.ip = ip;
+                            invokeFromClass((ObjClass) stack[--sp], name, argCount);
+                            continue frames;
+                        }
+                        case OpCode.TAIL_CALL -> {
+                            int argCount = code[ip++] & 0xff;
+                            dropFrame(base, argCount);
+                            callValue(stack[sp - argCount - 1], argCount);
+                            continue frames;
+                        }
+                        case OpCode.TAIL_INVOKE -> {
+                            String name = (String) constants[readShort(code, ip)];
+                            int argCount = code[ip + 2] & 0xff;
+                            ip += 3;
+                            dropFrame(base, argCount);
+                            invoke(name, argCount);
+                            continue frames;
+                        }
+                        case OpCode.TAIL_SUPER_INVOKE -> {
+                            String name = (String) constants[readShort(code, ip)];
+                            int argCount = code[ip + 2] & 0xff;
+                            ip += 3;
+                            ObjClass superclass = (ObjClass) stack[--sp];
+                            dropFrame(base, argCount);
+                            invokeFromClass(superclass, name, argCount);
+                            continue frames;
+                        }
+                        case OpCode.CLOSURE -> {
+                            ObjFunction function = (ObjFunction) constants[readShort(code, ip)];
+                            ip += 2;
+                            ObjClosure closure = new ObjClosure(function);
+                            for (int i = 0; i < closure.upvalues.length; i++) {
+                                boolean isLocal = code[ip++] == 1;
+                                int index = code[ip++] & 0xff;
+                                closure.upvalues[i] = isLocal
+                                        ? captureUpvalue(base + index)
+                                        : upvalues[index];
+                            }
+                            stack[sp++] = closure;
+                        }
+                        case OpCode.CLOSE_UPVALUE -> {
+                            closeUpvalues(sp - 1);
+                            sp--;
+                        }
+                        case OpCode.RETURN -> {
+                            Object result = stack[--sp];
+                            closeUpvalues(base);
+                            frameCount--;
+                            if (frameCount == 0) {
+                                sp--;
+                                return;
+                            }
+                            sp = base;
+                            stack[sp++] = result;
+                            continue frames;
+                        }
+                        case OpCode.CLASS -> {
+                            stack[sp++] = new ObjClass((String) constants[readShort(code, ip)]);
+                            ip += 2;
+                        }
+                        case OpCode.INHERIT -> {
+                            if (!(stack[sp - 2] instanceof ObjClass superclass)) {
+                                throw error(SUPER_MUST_BE_CLASS.getMsg());
+                            }
+                            ObjClass subclass = (ObjClass) stack[--sp];
+                            subclass.methods.putAll(superclass.methods);
+                            subclass.initialiser = superclass.initialiser;
+                        }
+                        case OpCode.METHOD -> {
+                            String name = (String) constants[readShort(code, ip)];
+                            ip += 2;
+                            ObjClosure method = (ObjClosure) stack[--sp];
+                            ObjClass clazz = (ObjClass) stack[sp - 1];
+                            clazz.methods.put(name, method);
+                            if (name.equals(INIT.getName())) clazz.initialiser = method;
+                        }
+                        default -> throw new IllegalStateException(
+                                "Unknown opcode " + code[ip - 1] + ".");
+                    }
+                }
+            }
+        } catch (VMError error) {
+            /* any frame pushed by a failing call was never entered, so the
+             * error belongs to the frame and ip the loop was running */
+            int line = frame.closure.function.chunk.getLine(ip - 1);
+            throw new RuntimeError(line, error.getMessage());
+        }
+    }
+
+    private static int readShort(byte[] code, int ip) {
+        return ((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff);
+    }
+
+    private void push(Object value) {
+        stack[sp++] = value;
+    }
+
+    private void resetStack() {
+        sp = 0;
+        frameCount = 0;
+        openUpvalues = null;
+    }
+
+    private VMError error(String message) {
+        return new VMError(message);
+    }
+
+    private void callValue(Object callee, int argCount) {
+        if (callee instanceof ObjClosure closure) {
+            call(closure, argCount);
+        } else if (callee instanceof ObjBoundMethod bound) {
+            stack[sp - argCount - 1] = bound.receiver;
+            call(bound.method, argCount);
+        } else if (callee instanceof ObjClass clazz) {
+            stack[sp - argCount - 1] = new ObjInstance(clazz);
+            if (clazz.initialiser != null) {
+                call(clazz.initialiser, argCount);
+            } else if (argCount != 0) {
+                throw error(String.format(INVALID_CALL_PARAMS.getMsg(),
+                        0, argCount));
+            }
+        } else if (callee instanceof ObjNative function) {
+            if (argCount != function.arity) {
+                throw error(String.format(INVALID_CALL_PARAMS.getMsg(),
+                        function.arity, argCount));
+            }
+            Object result = function.function.call(stack, sp - argCount);
+            sp -= argCount + 1;
+            push(result);
+        } else {
+            throw error(INVALID_CALL.getMsg());
+        }
+    }
+
+    private void call(ObjClosure closure, int argCount) {
+        if (argCount != closure.function.arity) {
+            throw error(String.format(INVALID_CALL_PARAMS.getMsg(),
+                    closure.function.arity, argCount));
+        }
+        if (frameCount == FRAMES_MAX) {
+            throw error(STACK_OVERFLOW.getMsg());
+        }
+        CallFrame frame = frames[frameCount++];
+        frame.closure = closure;
+        frame.ip = 0;
+        frame.base = sp - argCount - 1;
+    }
+
+    /* A call in tail position first gives up the frame making it,
+     * moving the callee and arguments down to the frame's base. A
+     * function called then takes the frame's place, and anything else
+     * leaves its result where the frame's return would have. */
+    private void dropFrame(int base, int argCount) {
+        closeUpvalues(base);
+        System.arraycopy(stack, sp - argCount - 1, stack, base, argCount + 1);
+        sp = base + argCount + 1;
+        frameCount--;
+    }
+
+    private void invoke(String name, int argCount) {
+        if (!(stack[sp - argCount - 1] instanceof ObjInstance instance)) {
+            throw error(NOT_INSTANCE.getMsg());
+        }
+        Object field = instance.fields.get(name);
+        if (field != null || instance.fields.containsKey(name)) {
+            stack[sp - argCount - 1] = field;
+            callValue(field, argCount);
+        } else {
+            invokeFromClass(instance.clazz, name, argCount);
+        }
+    }
+
+    private void invokeFromClass(ObjClass clazz, String name, int argCount) {
+        ObjClosure method = clazz.methods.get(name);
+        if (method == null) {
+            throw error(String.format(UNDEFINED_PROPERTY.getMsg(), name));
+        }
+        call(method, argCount);
+    }
+
+    private void bindMethod(ObjClass clazz, String name) {
+        ObjClosure method = clazz.methods.get(name);
+        if (method == null) {
+            throw error(String.format(UNDEFINED_PROPERTY.getMsg(), name));
+        }
+        stack[sp - 1] = new ObjBoundMethod(stack[sp - 1], method);
+    }
+
+    private ObjUpvalue captureUpvalue(int slot) {
+        ObjUpvalue previous = null;
+        ObjUpvalue upvalue = openUpvalues;
+        while (upvalue != null && upvalue.slot > slot) {
+            previous = upvalue;
+            upvalue = upvalue.next;
+        }
+        if (upvalue != null && upvalue.slot == slot) return upvalue;
+        ObjUpvalue created = new ObjUpvalue(stack, slot);
+        created.next = upvalue;
+        if (previous == null) {
+            openUpvalues = created;
+        } else {
+            previous.next = created;
+        }
+        return created;
+    }
+
+    private void closeUpvalues(int last) {
+        while (openUpvalues != null && openUpvalues.slot >= last) {
+            openUpvalues.close();
+            openUpvalues = openUpvalues.next;
+        }
+    }
+
+    private void checkNumberOperands() {
+        if (stack[sp - 2] instanceof Double && stack[sp - 1] instanceof Double) return;
+        throw error(OPERAND_NUMBERS.getMsg());
+    }
+}
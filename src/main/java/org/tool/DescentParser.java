@@ -0,0 +1,221 @@
+package org.tool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.jlox.Token;
+import org.jlox.TokenBuffer;
+import org.jlox.TokenType;
+
+import static org.jlox.TokenType.*;
+
+/* The recursive descent, one method per level of precedence, that the
+ * parser's precedence climbing replaced, kept for ParserBenchmark to time
+ * and check the trees against. It reads only the print statements the
+ * benchmark generates, and since an Expr cannot be built outside
+ * org.jlox it builds nodes of its own, which print() writes out the way
+ * AstPrinter writes an Expr. */
+final class DescentParser {
+    /* a literal has no operands; anything else prints parenthesised */
+    record Node(String name, List<Node> operands) {
+        static Node literal(Object value) {
+            return new Node(value == null ? "nil" : value.toString(), null);
+        }
+
+        static Node of(String name, Node... operands) {
+            return new Node(name, Arrays.asList(operands));
+        }
+
+        void print(StringBuilder builder) {
+            if (operands == null) {
+                builder.append(name);
+                return;
+            }
+            builder.append('(').append(name);
+            for (Node operand : operands) {
+                builder.append(' ');
+                operand.print(builder);
+            }
+            builder.append(')');
+        }
+    }
+
+    private final TokenBuffer tokens;
+    private int current = 0;
+
+    DescentParser(TokenBuffer tokens) {
+        this.tokens = tokens;
+    }
+
+    /* the expression of each print statement */
+    List<Node> parse() {
+        List<Node> expressions = new ArrayList<>();
+        while (!isAtEnd()) {
+            consume(PRINT);
+            expressions.add(expression());
+            consume(SEMICOLON);
+        }
+        return expressions;
+    }
+
+    static String print(List<Node> expressions) {
+        StringBuilder builder = new StringBuilder();
+        for (Node expression : expressions) {
+            expression.print(builder);
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    private Node expression() {
+        return assignment();
+    }
+
+    private Node assignment() {
+        Node expr = or();
+        if (match(EQUAL)) {
+            Node value = assignment();
+            if (expr.operands() != null && expr.operands().isEmpty()) {
+                return Node.of(expr.name(), value);
+            }
+            if (expr.name().startsWith(".")) {
+                return Node.of("=" + expr.name(), expr.operands().get(0), value);
+            }
+            throw new IllegalStateException("Invalid assignment target.");
+        }
+        return expr;
+    }
+
+    private Node or() {
+        return conditional(this::and, OR);
+    }
+
+    private Node and() {
+        return conditional(this::equality, AND);
+    }
+
+    private Node conditional(Supplier<Node> operand, TokenType type) {
+        Node expr = operand.get();
+        while (match(type)) {
+            Token operator = previous();
+            Node right = operand.get();
+            expr = Node.of(operator.lexeme(), expr, right);
+        }
+        return expr;
+    }
+
+    private Node equality() {
+        return binary(this::comparison, Arrays.asList(EQUAL_EQUAL, BANG_EQUAL));
+    }
+
+    private Node comparison() {
+        return binary(this::term, Arrays.asList(GREATER, GREATER_EQUAL, LESS, LESS_EQUAL));
+    }
+
+    private Node term() {
+        return binary(this::factor, Arrays.asList(MINUS, PLUS));
+    }
+
+    private Node factor() {
+        return binary(this::unary, Arrays.asList(SLASH, STAR));
+    }
+
+    private Node binary(Supplier<Node> operand, List<TokenType> types) {
+        Node left = operand.get();
+        while (match(types.toArray(TokenType[]::new))) {
+            Token operator = previous();
+            Node right = operand.get();
+            left = Node.of(operator.lexeme(), left, right);
+        }
+        return left;
+    }
+
+    private Node unary() {
+        if (match(BANG, MINUS)) {
+            Token operator = previous();
+            Node right = unary();
+            return Node.of(operator.lexeme(), right);
+        }
+        return call();
+    }
+
+    private Node call() {
+        Node expr = primary();
+        while (true) {
+            if (match(LEFT_PAREN)) {
+                List<Node> operands = new ArrayList<>();
+                operands.add(expr);
+                if (!check(RIGHT_PAREN)) {
+                    do {
+                        operands.add(expression());
+                    } while (match(COMMA));
+                }
+                consume(RIGHT_PAREN);
+                expr = new Node("call", operands);
+            } else if (match(DOT)) {
+                Token name = consume(IDENTIFIER);
+                expr = Node.of("." + name.lexeme(), expr);
+            } else {
+                break;
+            }
+        }
+        return expr;
+    }
+
+    private Node primary() {
+        if (match(FALSE)) return Node.literal(false);
+        if (match(TRUE)) return Node.literal(true);
+        if (match(NIL)) return Node.literal(null);
+        if (match(NUMBER, STRING)) return Node.literal(tokens.literal(current - 1));
+        if (match(SELF)) return new Node("self", null);
+        if (match(IDENTIFIER)) return Node.of(previous().lexeme());
+        if (match(LEFT_PAREN)) {
+            Node expr = expression();
+            consume(RIGHT_PAREN);
+            return Node.of("group", expr);
+        }
+        throw new IllegalStateException("Expect expression at " + peek().lexeme() + ".");
+    }
+
+    private Token consume(TokenType type) {
+        if (check(type)) {
+            advance();
+            return previous();
+        }
+        throw new IllegalStateException("Expect " + type + " at " + peek().lexeme() + ".");
+    }
+
+    private boolean match(TokenType... types) {
+        for (TokenType type : types) {
+            if (check(type)) {
+                advance();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean check(TokenType type) {
+        if (isAtEnd()) return false;
+        return tokens.type(current) == type;
+    }
+
+    private void advance() {
+        if (!isAtEnd()) current++;
+        tokens.release(current - 1);
+    }
+
+    private boolean isAtEnd() {
+        return tokens.type(current) == EOF;
+    }
+
+    private Token peek() {
+        return tokens.get(current);
+    }
+
+    private Token previous() {
+        return tokens.get(current - 1);
+    }
+}
@@ -14,32 +14,46 @@ public class GenerateAst {
         }
         String outputDir = args[0];
         defineAst(outputDir, "Expr", Arrays.asList(
-                "Assign     : Token name, Expr value",
-                "Binary     : Expr left, Token operator, Expr right",
-                "Call       : Expr callee, Token paren, List<Expr> args",
+                "Assign     : Token name, Expr value" +
+                            " | int depth = Environment.GLOBAL, int slot," +
+                            " GlobalCell cell",
+                "Binary     : Expr left, Token operator, Expr right" +
+                            " | boolean numeric",
+                "Call       : Expr callee, Token paren, List<Expr> args" +
+                            " | InlineCache cache = new InlineCache()",
                 "Grouping   : Expr expression",
-                "Get        : Expr object, Token name",
+                "Get        : Expr object, Token name" +
+                            " | InlineCache cache = new InlineCache()",
                 "Literal    : Object value",
                 "Logical    : Expr left, Token operator, Expr right",
-                "Self       : Token keyword",
-                "Set        : Expr object, Token name, Expr value",
-                "Super      : Token keyword, Token method",
+                "Self       : Token keyword" +
+                            " | int depth = Environment.GLOBAL, int slot",
+                "Set        : Expr object, Token name, Expr value" +
+                            " | InlineCache cache = new InlineCache()",
+                "Super      : Token keyword, Token method" +
+                            " | int depth = Environment.GLOBAL, int slot",
                 "Unary      : Token operator, Expr right",
-                "Variable   : Token name"
+                "Variable   : Token name" +
+                            " | int depth = Environment.GLOBAL, int slot," +
+                            " GlobalCell cell"
         ));
         defineAst(outputDir, "Stmt", Arrays.asList(
-                "Block      : List<Stmt> statements",
+                "Block      : List<Stmt> statements | int size, int[] released",
                 "Class      : Token name, Expr.Variable superclass," +
-                            " List<Stmt.Function> methods",
+                            " List<Stmt.Function> methods" +
+                            " | int slot = Environment.GLOBAL",
                 "Expression : Expr expression",
                 "Function   : Token name, List<Token> params," +
-                            " List<Stmt> body",
+                            " List<Stmt> body" +
+                            " | int slot = Environment.GLOBAL, int size," +
+                            " int[] released, int calls, LoxFunction.Body compiled",
                 "If         : Expr condition, Stmt thenBranch," +
                             " Stmt elseBranch",
                 "Print      : Expr expression",
-                "Return     : Token keyword, Expr value",
-                "Var        : Token name, Expr initializer",
-                "While      : Expr condition, Stmt body"
+                "Return     : Token keyword, Expr value | boolean tail",
+                "Var        : Token name, Expr initializer" +
+                            " | int slot = Environment.GLOBAL",
+                "While      : Expr condition, Stmt body | int backEdges"
         ));
     }
 
@@ -73,12 +87,21 @@ public class GenerateAst {
     }
 
     private static void defineType(final PrintWriter writer, final String baseName,
-                                   final String className, final String fieldList) {
+                                   final String className, final String fieldSpec) {
         writer.println("    public static class " + className + " extends " + baseName + " {");
+        /* fields after a '|' are filled in after parsing, by the resolver or
+         * by an engine profiling the code */
+        final String fieldList = fieldSpec.split("\\|")[0].trim();
         final String[] fields = fieldList.split(", ");
+        final String[] resolvedFields = fieldSpec.contains("|")
+                ? fieldSpec.split("\\|")[1].trim().split(", ")
+                : new String[0];
         for (String field : fields) {
             writer.println("        private final "  + field + ";");
         }
+        for (String field : resolvedFields) {
+            writer.println("        private " + field + ";");
+        }
         newLine(writer);
         writer.println("        " + className + "(" + fieldList + ") {");
         for (String field : fields) {
@@ -88,13 +111,11 @@ public class GenerateAst {
         writer.println("        }");
         newLine(writer);
         for (String field : fields) {
-            String type = field.split(" ")[0];
-            String name = field.split(" ")[1];
-            String getterName = "get" + capitaliseFirstLetter(name) + "()";
-            writer.println("        public " + type + " " + getterName + " {");
-            writer.println("            return " + name + ";");
-            writer.println("        }");
-            newLine(writer);
+            defineGetter(writer, field);
+        }
+        for (String field : resolvedFields) {
+            defineGetter(writer, field);
+            defineSetter(writer, field);
         }
         writer.println("        @Override");
         writer.println("        public <R> R accept(Visitor<R> visitor) {");
@@ -103,6 +124,26 @@ public class GenerateAst {
         writer.println("    }");
     }
 
+    private static void defineGetter(final PrintWriter writer, final String field) {
+        String type = field.split(" ")[0];
+        String name = field.split(" ")[1];
+        String getterName = "get" + capitaliseFirstLetter(name) + "()";
+        writer.println("        public " + type + " " + getterName + " {");
+        writer.println("            return " + name + ";");
+        writer.println("        }");
+        newLine(writer);
+    }
+
+    private static void defineSetter(final PrintWriter writer, final String field) {
+        String type = field.split(" ")[0];
+        String name = field.split(" ")[1];
+        String setterName = "set" + capitaliseFirstLetter(name);
+        writer.println("        public void " + setterName + "(" + type + " " + name + ") {");
+        writer.println("            this." + name + " = " + name + ";");
+        writer.println("        }");
+        newLine(writer);
+    }
+
     private static void defineVisitor(final PrintWriter writer, final String baseName,
                                       final List<String> types) {
         writer.println("    public interface Visitor<R> {");
@@ -0,0 +1,167 @@
+package org.tool;
+
+import java.util.List;
+import java.util.Random;
+
+import org.jlox.AstPrinter;
+import org.jlox.Parser;
+import org.jlox.Scanner;
+import org.jlox.Stmt;
+import org.jlox.TokenBuffer;
+import org.jlox.TokenType;
+
+/* Times the parser's precedence climbing against the recursive descent it
+ * replaced on a generated, expression-heavy script, after checking that
+ * both give the same trees, then finds how deeply each can nest
+ * parentheses before running out of stack. */
+public class ParserBenchmark {
+    private static final String[] OPERATORS = {
+        "+", "-", "*", "/", "==", "!=", "<", "<=", ">", ">=", "and", "or"
+    };
+    private static final int RUNS = 10;
+
+    public static void main(String[] args) {
+        if (args.length > 1) {
+            System.err.println("Usage: parser_benchmark [statements]");
+            System.exit(64);
+        }
+        int statements = args.length == 1 ? Integer.parseInt(args[0]) : 100_000;
+        String source = generate(statements, new Random(1));
+        System.out.printf("%d statements, %d characters%n", statements, source.length());
+
+        if (!print(parse(source)).equals(DescentParser.print(descend(source)))) {
+            System.err.println("The parsers disagree.");
+            System.exit(70);
+        }
+
+        long scan = Long.MAX_VALUE;
+        long climbing = Long.MAX_VALUE;
+        long descent = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            scan = Math.min(scan, time(() -> scan(source)));
+            climbing = Math.min(climbing, time(() -> parse(source)));
+            descent = Math.min(descent, time(() -> descend(source)));
+        }
+        System.out.printf("scanning alone:                %5d ms%n", scan);
+        System.out.printf("scanning, precedence climbing: %5d ms%n", climbing);
+        System.out.printf("scanning, recursive descent:   %5d ms%n", descent);
+
+        System.out.printf("deepest parentheses, precedence climbing: %d%n", deepest(false));
+        System.out.printf("deepest parentheses, recursive descent:   %d%n", deepest(true));
+    }
+
+    /* statements that print random expressions over every operator */
+    private static String generate(int statements, Random random) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < statements; i++) {
+            builder.append("print ");
+            expression(builder, random, 3);
+            builder.append(";\n");
+        }
+        return builder.toString();
+    }
+
+    private static void expression(StringBuilder builder, Random random, int depth) {
+        operand(builder, random, depth);
+        int operators = random.nextInt(4);
+        for (int i = 0; i < operators; i++) {
+            builder.append(' ').append(OPERATORS[random.nextInt(OPERATORS.length)]).append(' ');
+            operand(builder, random, depth);
+        }
+    }
+
+    private static void operand(StringBuilder builder, Random random, int depth) {
+        int choice = depth == 0 ? random.nextInt(4) : random.nextInt(8);
+        switch (choice) {
+            case 0 -> builder.append(random.nextInt(1000));
+            case 1 -> builder.append("x").append(random.nextInt(50));
+            case 2 -> builder.append("\"s\"");
+            case 3 -> builder.append("a.b");
+            case 4 -> {
+                builder.append('(');
+                expression(builder, random, depth - 1);
+                builder.append(')');
+            }
+            case 5 -> {
+                builder.append(random.nextBoolean() ? "-" : "!");
+                operand(builder, random, depth - 1);
+            }
+            case 6 -> {
+                builder.append("f(");
+                expression(builder, random, depth - 1);
+                builder.append(", ");
+                expression(builder, random, depth - 1);
+                builder.append(')');
+            }
+            default -> {
+                builder.append("(y = ");
+                expression(builder, random, depth - 1);
+                builder.append(')');
+            }
+        }
+    }
+
+    private static List<Stmt> parse(String source) {
+        return new Parser(new Scanner(source).tokens()).parse();
+    }
+
+    private static List<DescentParser.Node> descend(String source) {
+        return new DescentParser(new Scanner(source).tokens()).parse();
+    }
+
+    private static void scan(String source) {
+        TokenBuffer tokens = new Scanner(source).tokens();
+        for (int i = 0; tokens.type(i) != TokenType.EOF; i++) {
+            tokens.release(i);
+        }
+    }
+
+    private static String print(List<Stmt> statements) {
+        AstPrinter printer = new AstPrinter();
+        StringBuilder builder = new StringBuilder();
+        for (Stmt statement : statements) {
+            builder.append(printer.print(((Stmt.Print) statement).getExpression())).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static long time(Runnable task) {
+        long start = System.nanoTime();
+        task.run();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /* the most parentheses around a literal a parser gets through, found
+     * by doubling and then halving the depth tried */
+    private static int deepest(boolean descent) {
+        int low = 1;
+        int high = 2;
+        while (parses(high, descent)) {
+            low = high;
+            high *= 2;
+        }
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (parses(middle, descent)) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static boolean parses(int depth, boolean descent) {
+        String source = "print " + "(".repeat(depth) + "1" + ")".repeat(depth) + ";";
+        try {
+            if (descent) {
+                descend(source);
+            } else {
+                parse(source);
+            }
+            return true;
+        } catch (StackOverflowError e) {
+            return false;
+        }
+    }
+}
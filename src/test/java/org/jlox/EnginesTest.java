@@ -0,0 +1,38 @@
+package org.jlox;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/* Every engine prints the same as the tree-walker on programs/*.lox, bar
+ * clock.lox, whose output differs from run to run. */
+class EnginesTest {
+    @Test
+    void enginesAgreeOnThePrograms() throws Exception {
+        List<Path> programs = programs();
+        assertFalse(programs.isEmpty());
+        for (Path program : programs) {
+            String expected = LoxProcess.run(List.of(), "--engine=tree", program.toString());
+            for (String engine : LoxProcess.ENGINES) {
+                assertEquals(expected, LoxProcess.run(List.of(), "--engine=" + engine, program.toString()),
+                        engine + " on " + program.getFileName());
+            }
+        }
+    }
+
+    private static List<Path> programs() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of("programs"))) {
+            return files.filter(file -> file.toString().endsWith(".lox"))
+                    .filter(file -> !file.getFileName().toString().equals("clock.lox"))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.jlox;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* Runs Lox in a JVM of its own, since Lox keeps its error state in
+ * statics and exits on errors, and gives back what it printed. */
+final class LoxProcess {
+    static final String[] ENGINES = {"tree", "closures", "tiered", "nodes", "jvm", "vm"};
+
+    private LoxProcess() {}
+
+    static String run(List<String> jvmOptions, String... args)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + "/bin/java");
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("org.jlox.Lox");
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(process.waitFor(60, TimeUnit.SECONDS), String.join(" ", args));
+        return output;
+    }
+}
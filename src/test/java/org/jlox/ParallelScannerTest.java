@@ -0,0 +1,88 @@
+package org.jlox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/* Scans sources both sequentially and cut into chunks, and expects the
+ * same tokens, lines, symbols and errors. The random sources are built
+ * from pieces that make chunks start inside strings, comments and
+ * tokens, unterminated ones included. */
+class ParallelScannerTest {
+    private static final String[] PIECES = {
+        "let x = 1;", "\"str\"", "\"multi\nline\nstring\"", "/* c */", "/* open\n", "*/",
+        "\n", "\n\n", "// c\n", "#", "@", "print \"a", "\"", "1.5", "007", "*/!=", "*/\n=",
+        " ", "func f(a) { return a; }", "self", "selfish"
+    };
+
+    @Test
+    void chunksAgreeWithTheSequentialScan() throws IOException {
+        for (String source : sources()) {
+            String[] expected = scan(source, 0);
+            for (int chunks = 2; chunks < 12; chunks++) {
+                String[] actual = scan(source, chunks);
+                assertEquals(expected[0], actual[0], chunks + " chunks of " + source);
+                assertEquals(expected[1], actual[1], chunks + " chunks of " + source);
+            }
+        }
+    }
+
+    private static List<String> sources() throws IOException {
+        List<String> sources = new ArrayList<>();
+        try (Stream<Path> files = Files.list(Path.of("programs"))) {
+            for (Path file : files.sorted().toList()) {
+                sources.add(Files.readString(file));
+            }
+        }
+        Random random = new Random(42);
+        for (int n = 0; n < 1000; n++) {
+            StringBuilder source = new StringBuilder();
+            int pieces = random.nextInt(60);
+            for (int i = 0; i < pieces; i++) {
+                source.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            sources.add(source.toString());
+        }
+        return sources;
+    }
+
+    /* the tokens of source, scanned in chunks unless chunks is 0, and the
+     * errors reported on the way */
+    private static String[] scan(String source, int chunks) {
+        PrintStream err = System.err;
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(errors));
+        try {
+            TokenBuffer tokens = chunks == 0 ? new Scanner(source).tokens()
+                    : ParallelScanner.scan(source.toCharArray(), source.length(), chunks);
+            return new String[] {dump(tokens), errors.toString()};
+        } finally {
+            System.setErr(err);
+        }
+    }
+
+    private static String dump(TokenBuffer tokens) {
+        StringBuilder dump = new StringBuilder();
+        for (int i = 0; ; i++) {
+            Token token = tokens.get(i);
+            dump.append(token.type()).append(' ').append(tokens.start(i)).append(' ')
+                    .append(token.line()).append(' ').append(token.lexeme()).append(' ')
+                    .append(token.literal()).append('\n');
+            if (token.type() == TokenType.IDENTIFIER) {
+                assertSame(Symbol.intern(token.lexeme()), token.symbol());
+            }
+            if (token.type() == TokenType.EOF) return dump.toString();
+        }
+    }
+}
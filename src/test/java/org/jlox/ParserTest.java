@@ -0,0 +1,48 @@
+package org.jlox;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/* The trees precedence climbing builds, written out by AstPrinter, for
+ * expressions that mix every level of precedence. */
+class ParserTest {
+    @Test
+    void tighterOperatorsBindFirst() {
+        assertTree("(+ 1.0 (* 2.0 3.0))", "1 + 2 * 3");
+        assertTree("(+ (* 1.0 2.0) 3.0)", "1 * 2 + 3");
+        assertTree("(or (a) (and (b) (c)))", "a or b and c");
+        assertTree("(== (< (a) (+ (b) (c))) (> (d) (e)))", "a < b + c == d > e");
+        assertTree("(or (and (== (a) 1.0) (!= (b) 2.0)) (<= (c) (/ (- (d)) 3.0)))",
+                "a == 1 and b != 2 or c <= -d / 3");
+    }
+
+    @Test
+    void operatorsOfALevelAssociateLeft() {
+        assertTree("(- (- 1.0 2.0) 3.0)", "1 - 2 - 3");
+        assertTree("(/ (* (/ 1.0 2.0) 3.0) 4.0)", "1 / 2 * 3 / 4");
+        assertTree("(or (or (a) (b)) (c))", "a or b or c");
+    }
+
+    @Test
+    void assignmentAssociatesRight() {
+        assertTree("(a (b (+ 1.0 2.0)))", "a = b = 1 + 2");
+        assertTree("(=.y (x) (or (p) (q)))", "x.y = p or q");
+    }
+
+    @Test
+    void operandsTakeCallsGroupsAndUnaryOperators() {
+        assertTree("(* (group (+ 1.0 2.0)) (call (f) (a) (- (b) 1.0)))", "(1 + 2) * f(a, b - 1)");
+        assertTree("(< (! (.b (a))) (- (- 1.0)))", "!a.b < - -1");
+        assertTree("(+ s t)", "\"s\" + \"t\"");
+    }
+
+    private static void assertTree(String expected, String expression) {
+        List<Stmt> statements = new Parser(new Scanner("print " + expression + ";").tokens()).parse();
+        assertEquals(1, statements.size());
+        Expr expr = ((Stmt.Print) statements.get(0)).getExpression();
+        assertEquals(expected, new AstPrinter().print(expr), expression);
+    }
+}
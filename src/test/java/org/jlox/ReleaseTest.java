@@ -0,0 +1,22 @@
+package org.jlox;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/* Runs pinning.lox on every engine in a JVM with a heap far smaller than
+ * the program would need if the locals the resolver releases stayed
+ * reachable from the closures it returns. */
+class ReleaseTest {
+    @Test
+    void releasedLocalsDoNotOutliveACall() throws Exception {
+        String script = Path.of(ReleaseTest.class.getResource("/pinning.lox").toURI()).toString();
+        for (String engine : LoxProcess.ENGINES) {
+            assertEquals("ok\n", LoxProcess.run(List.of("-Xmx128m"), "--engine=" + engine, script),
+                    engine);
+        }
+    }
+}